@@ -0,0 +1,117 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.HanLPPinyinTokenFilterFactory;
+import com.google.common.io.Resources;
+import com.hankcs.lucene.HanLPTokenizerFactory;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
+import org.apache.lucene.analysis.custom.CustomAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分词链基准测试：tokens/s、chars/s，配合 -prof gc 查看分配速率
+ * <pre>
+ * mvn -P benchmark test-compile exec:exec -Djmh.args="-prof gc BenchmarkAnalyzer"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkAnalyzer {
+    /**
+     * 分词链：
+     * tokenizer 仅HanLP分词；lowercase 分词+小写；
+     * pinyin 完整分词链（全拼+首字母，与Markup一致）；pinyinString 仅全拼；pinyinFirstChar 仅首字母；pinyinNone 拼音过滤器不输出拼音
+     */
+    @Param({"tokenizer", "lowercase", "pinyin", "pinyinString", "pinyinFirstChar", "pinyinNone"})
+    public String chain;
+    /**
+     * 语料：中文为主、英文为主、代码为主
+     */
+    @Param({"zh.md", "en.md", "code.md"})
+    public String corpus;
+
+    private Analyzer analyzer;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        text = Resources.toString(Resources.getResource("corpus/" + corpus), StandardCharsets.UTF_8);
+        analyzer = newAnalyzer(chain);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        analyzer.close();
+    }
+
+    private static Analyzer newAnalyzer(String chain) throws IOException {
+        CustomAnalyzer.Builder builder = CustomAnalyzer.builder()
+                .withTokenizer(HanLPTokenizerFactory.class);
+        switch (chain) {
+            case "tokenizer":
+                return builder.build();
+            case "lowercase":
+                return builder.addTokenFilter(LowerCaseFilterFactory.class).build();
+            case "pinyin":
+                return builder.addTokenFilter(LowerCaseFilterFactory.class)
+                        .addTokenFilter(HanLPPinyinTokenFilterFactory.class)
+                        .build();
+            case "pinyinString":
+                return builder.addTokenFilter(LowerCaseFilterFactory.class)
+                        .addTokenFilter(HanLPPinyinTokenFilterFactory.class, "pinyinFirstChar", "false")
+                        .build();
+            case "pinyinFirstChar":
+                return builder.addTokenFilter(LowerCaseFilterFactory.class)
+                        .addTokenFilter(HanLPPinyinTokenFilterFactory.class, "pinyin", "false")
+                        .build();
+            case "pinyinNone":
+                return builder.addTokenFilter(LowerCaseFilterFactory.class)
+                        .addTokenFilter(HanLPPinyinTokenFilterFactory.class, "pinyin", "false", "pinyinFirstChar", "false")
+                        .build();
+            default:
+                throw new IllegalArgumentException(chain);
+        }
+    }
+
+    /**
+     * 计数器，按秒输出
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long tokens;
+        public long chars;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+            chars = 0;
+        }
+    }
+
+    @Benchmark
+    public int analyze(Counters counters) throws IOException {
+        int tokens = 0;
+        try (TokenStream tokenStream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute charTermAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                tokens += charTermAttribute.length() > 0 ? 1 : 0;
+            }
+            tokenStream.end();
+        }
+        counters.tokens += tokens;
+        counters.chars += text.length();
+        return tokens;
+    }
+}
@@ -0,0 +1,111 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.SearchCursor;
+import cc.whohow.markup.impl.SearchResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 无关键词浏览（按创建时间倒序）基准测试，索引按创建时间排序后耗时不随文档数增长
+ * <pre>
+ * mvn -P benchmark test-compile exec:exec -Djmh.args="BenchmarkBrowse"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class BenchmarkBrowse {
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"10000", "100000"})
+    public int docs;
+
+    private Markup markup;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        MarkupConfiguration configuration = new MarkupConfiguration();
+        configuration.setGit("file:///tmp/markup-benchmark");
+        markup = new Markup(configuration);
+
+        // 短文档，缩短建索引时间
+        MarkdownGenerator generator = new MarkdownGenerator(docs);
+        generator.setSize(128);
+        long start = System.nanoTime();
+        for (int i = 0; i < docs; i++) {
+            markup.index(generator.markdown(i));
+        }
+        markup.commit();
+        System.out.println("index " + docs + " docs " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        markup.close();
+    }
+
+    private static SearchCursor cursor(String prefix, int offset) {
+        return cursor(prefix, null, offset);
+    }
+
+    private static SearchCursor cursor(String prefix, String keyword, int offset) {
+        SearchCursor cursor = new SearchCursor();
+        cursor.setPrefix(prefix);
+        cursor.setKeyword(keyword);
+        cursor.setCount(PAGE_SIZE);
+        cursor.setOffset(offset);
+        return cursor;
+    }
+
+    /**
+     * 首页
+     */
+    @Benchmark
+    public SearchResult<Markdown> browse() throws Exception {
+        return markup.search(cursor(null, 0));
+    }
+
+    /**
+     * 第10页
+     */
+    @Benchmark
+    public SearchResult<Markdown> browsePage10() throws Exception {
+        return markup.search(cursor(null, 9 * PAGE_SIZE));
+    }
+
+    /**
+     * 目录首页
+     */
+    @Benchmark
+    public SearchResult<Markdown> browsePrefix() throws Exception {
+        return markup.search(cursor("dir3/", 0));
+    }
+
+    /**
+     * 目录内关键词搜索，按相关性排序，目录过滤需遍历全部命中
+     */
+    @Benchmark
+    public SearchResult<Markdown> searchPrefix() throws Exception {
+        return markup.search(cursor("dir3/", "缓存", 0));
+    }
+
+    /**
+     * 首页及顶级目录分面统计（需遍历全部文档）
+     */
+    @Benchmark
+    public SearchResult<Markdown> browseFacets() throws Exception {
+        return markup.search(cursor(null, 0), 1);
+    }
+
+    /**
+     * 关键词搜索及顶级目录分面统计
+     */
+    @Benchmark
+    public SearchResult<Markdown> searchFacets() throws Exception {
+        return markup.search(cursor(null, "缓存", 0), 1);
+    }
+}
@@ -0,0 +1,127 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.SearchCursor;
+import cc.whohow.markup.impl.SearchResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Markup 读取、目录、搜索基准测试，语料由 MarkdownGenerator 生成，配合 -prof gc 查看每次操作分配字节数
+ * <pre>
+ * mvn -P benchmark test-compile exec:exec -Djmh.args="-prof gc BenchmarkMarkup"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkMarkup {
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"1000", "10000"})
+    public int docs;
+    @Param({"2048"})
+    public int size;
+    @Param({"0.5"})
+    public double cjkRatio;
+
+    private Markup markup;
+    private String[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        MarkupConfiguration configuration = new MarkupConfiguration();
+        configuration.setGit("file:///tmp/markup-benchmark");
+        markup = new Markup(configuration);
+
+        MarkdownGenerator generator = new MarkdownGenerator(docs);
+        generator.setSize(size);
+        generator.setCjkRatio(cjkRatio);
+        keys = new String[docs];
+        long start = System.nanoTime();
+        for (int i = 0; i < docs; i++) {
+            Markdown markdown = generator.markdown(i);
+            keys[i] = markdown.getKey();
+            markup.index(markdown);
+        }
+        markup.commit();
+        System.out.println("index " + docs + " docs " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        markup.close();
+    }
+
+    private static SearchCursor cursor(String prefix, String keyword, int offset) {
+        SearchCursor cursor = new SearchCursor();
+        cursor.setPrefix(prefix);
+        cursor.setKeyword(keyword);
+        cursor.setCount(PAGE_SIZE);
+        cursor.setOffset(offset);
+        return cursor;
+    }
+
+    @Benchmark
+    public Markdown get() throws Exception {
+        int i = next++;
+        if (next == keys.length) {
+            next = 0;
+        }
+        return markup.get(keys[i]);
+    }
+
+    @Benchmark
+    public SortedSet<String> list() throws Exception {
+        return markup.list();
+    }
+
+    /**
+     * 无条件，按创建时间排序
+     */
+    @Benchmark
+    public SearchResult<Markdown> searchEmpty() throws Exception {
+        return markup.search(cursor(null, null, 0));
+    }
+
+    @Benchmark
+    public SearchResult<Markdown> searchPrefix() throws Exception {
+        return markup.search(cursor("dir3/", null, 0));
+    }
+
+    @Benchmark
+    public SearchResult<Markdown> searchSingleTerm() throws Exception {
+        return markup.search(cursor(null, "线程池", 0));
+    }
+
+    @Benchmark
+    public SearchResult<Markdown> searchMultiTerm() throws Exception {
+        return markup.search(cursor(null, "并发 缓存 netty", 0));
+    }
+
+    @Benchmark
+    public SearchResult<Markdown> searchPinyin() throws Exception {
+        return markup.search(cursor(null, "bingfa", 0));
+    }
+
+    /**
+     * 深度翻页（一半文档处），按创建时间排序
+     */
+    @Benchmark
+    public SearchResult<Markdown> searchDeepPage() throws Exception {
+        return markup.search(cursor(null, null, docs / 2));
+    }
+
+    /**
+     * 深度翻页（一半命中处），按相关性排序
+     */
+    @Benchmark
+    public SearchResult<Markdown> searchDeepPageTerm() throws Exception {
+        return markup.search(cursor(null, "缓存", docs / 4));
+    }
+}
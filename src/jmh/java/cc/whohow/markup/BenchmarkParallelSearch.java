@@ -0,0 +1,99 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.SearchCursor;
+import cc.whohow.markup.impl.SearchResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多段索引单线程查询与按切片并行查询对比，searchThreads=0为单线程；并行收益取决于CPU核数
+ * <pre>
+ * mvn -P benchmark test-compile exec:exec -Djmh.args="BenchmarkParallelSearch"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class BenchmarkParallelSearch {
+    private static final int DOCS = 100000;
+    private static final int COMMIT_DOCS = 10000;
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"0", "4"})
+    public int searchThreads;
+
+    @Param({"10000"})
+    public int searchSliceDocs;
+
+    private Markup markup;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        MarkupConfiguration configuration = new MarkupConfiguration();
+        configuration.setGit("file:///tmp/markup-benchmark");
+        configuration.setSearchThreads(searchThreads);
+        configuration.setSearchSliceDocs(searchSliceDocs);
+        markup = new Markup(configuration);
+
+        // 分批提交，产生多个段
+        MarkdownGenerator generator = new MarkdownGenerator(DOCS);
+        generator.setSize(256);
+        for (int i = 0; i < DOCS; i++) {
+            markup.index(generator.markdown(i));
+            if (i % COMMIT_DOCS == COMMIT_DOCS - 1) {
+                markup.commit();
+            }
+        }
+        markup.commit();
+        System.out.println("cpus " + Runtime.getRuntime().availableProcessors() + ", slices " + markup.getSearchSlices());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        markup.close();
+    }
+
+    private static SearchCursor cursor(String keyword, String sort) {
+        SearchCursor cursor = new SearchCursor();
+        cursor.setKeyword(keyword);
+        cursor.setSort(sort);
+        cursor.setCount(PAGE_SIZE);
+        return cursor;
+    }
+
+    /**
+     * 关键词（模糊查询）按相关性
+     */
+    @Benchmark
+    public SearchResult<Markdown> search() throws Exception {
+        return markup.search(cursor("lucene 缓存", null));
+    }
+
+    /**
+     * 拼音关键词按修改时间
+     */
+    @Benchmark
+    public SearchResult<Markdown> searchPinyin() throws Exception {
+        return markup.search(cursor("huancun", SearchCursor.SORT_MODIFIED));
+    }
+
+    /**
+     * 无关键词浏览及顶级目录分面统计（遍历全部文档）
+     */
+    @Benchmark
+    public SearchResult<Markdown> browseFacets() throws Exception {
+        return markup.search(cursor(null, null), 1);
+    }
+
+    /**
+     * 无关键词浏览（提前结束）
+     */
+    @Benchmark
+    public SearchResult<Markdown> browse() throws Exception {
+        return markup.search(cursor(null, null));
+    }
+}
@@ -0,0 +1,91 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.Suggester;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入提示基准测试：中文前缀、全拼、首字母、文件路径
+ * <pre>
+ * mvn -P benchmark test-compile exec:exec -Djmh.args="BenchmarkSuggest"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class BenchmarkSuggest {
+    private static final int COUNT = 10;
+
+    @Param({"10000", "100000"})
+    public int docs;
+
+    private Markup markup;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        MarkupConfiguration configuration = new MarkupConfiguration();
+        configuration.setGit("file:///tmp/markup-benchmark");
+        markup = new Markup(configuration);
+
+        // 短文档，缩短建索引时间
+        MarkdownGenerator generator = new MarkdownGenerator(docs);
+        generator.setSize(128);
+        for (int i = 0; i < docs; i++) {
+            markup.index(generator.markdown(i));
+        }
+        long start = System.nanoTime();
+        markup.commit();
+        long commit = System.nanoTime();
+        Suggester suggester = markup.awaitSuggester();
+        System.out.println("commit " + docs + " docs " + TimeUnit.NANOSECONDS.toMillis(commit - start) + "ms, "
+                + "suggester " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - commit) + "ms, "
+                + suggester.size() + " suggestions, " + suggester.ramBytesUsed() / 1024 + "KB");
+
+        // 只修改一篇，其余复用展开结果
+        markup.index(generator.markdown(0, 1));
+        start = System.nanoTime();
+        markup.commit();
+        commit = System.nanoTime();
+        markup.awaitSuggester();
+        System.out.println("recommit " + TimeUnit.NANOSECONDS.toMillis(commit - start) + "ms, "
+                + "suggester " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - commit) + "ms");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        markup.close();
+    }
+
+    @Benchmark
+    public List<Suggester.Suggestion> suggestChinese() throws Exception {
+        return markup.suggest("负载", COUNT);
+    }
+
+    @Benchmark
+    public List<Suggester.Suggestion> suggestPinyin() throws Exception {
+        return markup.suggest("fuzai", COUNT);
+    }
+
+    @Benchmark
+    public List<Suggester.Suggestion> suggestPinyinFirstChar() throws Exception {
+        return markup.suggest("fzjh", COUNT);
+    }
+
+    @Benchmark
+    public List<Suggester.Suggestion> suggestKey() throws Exception {
+        return markup.suggest("dir3/doc1", COUNT);
+    }
+
+    /**
+     * 单字母，命中最多
+     */
+    @Benchmark
+    public List<Suggester.Suggestion> suggestShort() throws Exception {
+        return markup.suggest("j", COUNT);
+    }
+}
@@ -10,6 +10,7 @@ public class Markdown {
     private String content;
     private String html;
     private Date created;
+    private Date modified;
 
     public String getKey() {
         return key;
@@ -43,6 +44,14 @@ public class Markdown {
         this.created = created;
     }
 
+    public Date getModified() {
+        return modified;
+    }
+
+    public void setModified(Date modified) {
+        this.modified = modified;
+    }
+
     @Override
     public String toString() {
         return content;
@@ -2,9 +2,20 @@ package cc.whohow.markup;
 
 import cc.whohow.markup.impl.CloseRunnable;
 import cc.whohow.markup.impl.HanLPPinyinTokenFilterFactory;
+import cc.whohow.markup.impl.Jfr;
+import cc.whohow.markup.impl.PrometheusText;
+import cc.whohow.markup.impl.ReopenEvent;
+import cc.whohow.markup.impl.SearchCollectorManager;
+import cc.whohow.markup.impl.SearchEvent;
 import cc.whohow.markup.impl.SearchCursor;
 import cc.whohow.markup.impl.SearchResult;
+import cc.whohow.markup.impl.Suggester;
+import cc.whohow.markup.impl.TocTree;
+import cc.whohow.markup.impl.UpdateException;
+import cc.whohow.markup.impl.UpdateReport;
+import com.google.common.base.Utf8;
 import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.hankcs.lucene.HanLPTokenizerFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -16,6 +27,7 @@ import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.document.*;
 import org.apache.lucene.index.*;
 import org.apache.lucene.search.*;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.ByteBuffersDirectory;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
@@ -29,13 +41,23 @@ import org.eclipse.jgit.revwalk.RevCommit;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Markup implements AutoCloseable {
     private static final Logger log = LogManager.getLogger();
@@ -43,12 +65,34 @@ public class Markup implements AutoCloseable {
     private static final String CONTENT = "content";
     private static final String HTML = "html";
     private static final String CREATED = "created";
+    private static final String MODIFIED = "modified";
+    private static final String DIRECTORY = "directory";
+    private static final String TITLE = "title";
+    private static final int UPDATE_REPORTS = 32;
+    // 首次建索引
+    private static final int BULK_BATCH_SIZE = 256;
+    private static final double BULK_RAM_BUFFER_MB = 32;
+    private static final int BULK_MAX_SEGMENTS = 4;
+    // 并行查询
+    private static final int DEFAULT_SEARCH_SLICE_DOCS = 10000;
+    private static final int SEARCH_QUEUE_PER_THREAD = 16;
+    /**
+     * 查询队列已满或线程池已关闭时在调用线程执行（CallerRunsPolicy关闭后会丢弃任务，IndexSearcher将一直等待切片结果）
+     */
+    private static final RejectedExecutionHandler RUN_IN_CALLER = (task, pool) -> task.run();
     private static final Sort SORT_BY_CREATED = new Sort(new SortField(CREATED, SortField.Type.LONG, true));
+    private static final Sort SORT_BY_MODIFIED = new Sort(new SortField(MODIFIED, SortField.Type.LONG, true));
+    private static final Sort SORT_BY_KEY = new Sort(new SortField(KEY, SortField.Type.STRING));
 
     // git
     private final MarkupGitRepository gitRepository;
     // executor
     private final ScheduledExecutorService executor;
+    // 输入提示构建线程
+    private final ExecutorService suggesterExecutor;
+    // 查询线程池，未配置时为null（单线程查询）
+    private final ExecutorService searchExecutor;
+    private final int searchSliceDocs;
     // lucene
     private final Directory index;
     private final Analyzer analyzer;
@@ -58,8 +102,19 @@ public class Markup implements AutoCloseable {
     private final HtmlRenderer renderer;
     // mutable searcher
     private volatile IndexSearcher searcher;
+    // 目录树，与searcher同时更新
+    private volatile TocTree tocTree = TocTree.EMPTY;
+    // 输入提示，searcher更新后异步构建
+    private volatile Suggester suggester = Suggester.EMPTY;
+    // 待构建输入提示的索引（已增加引用计数），构建期间多次提交只保留最新的
+    private final AtomicReference<DirectoryReader> suggesterReader = new AtomicReference<>();
+    private volatile Future<?> suggesterBuild;
     // state
     private volatile RevCommit committed;
+    // metrics
+    private final AtomicInteger openReaders = new AtomicInteger();
+    private final Deque<UpdateReport> updateReports = new ArrayDeque<>(UPDATE_REPORTS);
+    private volatile UpdateReport lastUpdateReport;
 
     public Markup(MarkupConfiguration configuration) {
         try {
@@ -72,9 +127,23 @@ public class Markup implements AutoCloseable {
                     .addTokenFilter(LowerCaseFilterFactory.class)
                     .addTokenFilter(HanLPPinyinTokenFilterFactory.class)
                     .build();
-            writer = new IndexWriter(index, new IndexWriterConfig(analyzer));
+            // 索引按创建时间倒序排列，无关键词时各段取够即可提前结束
+            writer = new IndexWriter(index, new IndexWriterConfig(analyzer).setIndexSort(SORT_BY_CREATED));
             writer.commit();
-            searcher = new IndexSearcher(DirectoryReader.open(index));
+            // 查询线程池：有界队列，排满或关闭后在调用线程执行
+            if (configuration.getSearchThreads() > 0) {
+                searchExecutor = new ThreadPoolExecutor(
+                        configuration.getSearchThreads(), configuration.getSearchThreads(),
+                        0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(configuration.getSearchThreads() * SEARCH_QUEUE_PER_THREAD),
+                        new ThreadFactoryBuilder().setNameFormat("markup-search-%d").setDaemon(true).build(),
+                        RUN_IN_CALLER);
+            } else {
+                searchExecutor = null;
+            }
+            searchSliceDocs = (configuration.getSearchSliceDocs() > 0) ?
+                    configuration.getSearchSliceDocs() : DEFAULT_SEARCH_SLICE_DOCS;
+            searcher = newSearcher(track(DirectoryReader.open(index)));
             // markdown
             List<Extension> extensions = Collections.singletonList(TablesExtension.create());
             parser = Parser.builder()
@@ -85,6 +154,8 @@ public class Markup implements AutoCloseable {
                     .build();
             // executor
             executor = Executors.newScheduledThreadPool(1);
+            suggesterExecutor = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("markup-suggester").setDaemon(true).build());
         } catch (Throwable e) {
             close();
             throw new UndeclaredThrowableException(e);
@@ -144,40 +215,184 @@ public class Markup implements AutoCloseable {
     /**
      * 提交变更
      */
-    public synchronized void commit() throws IOException {
+    public void commit() throws IOException {
+        commit(new UpdateReport());
+    }
+
+    private synchronized void commit(UpdateReport report) throws IOException {
         log.debug("commit");
+        long start = System.nanoTime();
         writer.flush();
         writer.commit();
+        report.addPhase(UpdateReport.COMMIT, System.nanoTime() - start);
+        start = System.nanoTime();
+        ReopenEvent event = Jfr.AVAILABLE ? new ReopenEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
         DirectoryReader reader = (DirectoryReader) searcher.getIndexReader();
         DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+        report.addPhase(UpdateReport.REOPEN, System.nanoTime() - start);
+        if (event != null && event.shouldCommit()) {
+            DirectoryReader current = (newReader == null) ? reader : newReader;
+            event.changed = newReader != null;
+            event.docs = current.numDocs();
+            event.segments = current.leaves().size();
+            event.commit();
+        }
         if (newReader != null) {
             log.debug("reopen");
-            searcher = new IndexSearcher(newReader);
+            start = System.nanoTime();
+            TocTree newTocTree = TocTree.build(newReader, KEY);
+            report.addPhase(UpdateReport.BUILD_TOC, System.nanoTime() - start);
+            searcher = newSearcher(track(newReader));
+            tocTree = newTocTree;
+            buildSuggester(newReader);
             executor.schedule(new CloseRunnable(reader), 1, TimeUnit.MINUTES);
         }
     }
 
+    /**
+     * 发布新的searcher后异步构建输入提示，构建完成前仍使用上次的提示
+     */
+    private void buildSuggester(DirectoryReader reader) {
+        reader.incRef();
+        decRef(suggesterReader.getAndSet(reader));
+        suggesterBuild = suggesterExecutor.submit(this::buildPendingSuggester);
+    }
+
+    private void buildPendingSuggester() {
+        DirectoryReader reader = suggesterReader.getAndSet(null);
+        if (reader == null) {
+            // 已由之前的任务构建
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            Suggester newSuggester = Suggester.build(reader, KEY, TITLE, MODIFIED, suggester);
+            suggester = newSuggester;
+            log.debug("suggester {} {}ms", newSuggester.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Throwable e) {
+            log.error("suggester", e);
+        } finally {
+            decRef(reader);
+        }
+    }
+
+    private static void decRef(DirectoryReader reader) {
+        try {
+            if (reader != null) {
+                reader.decRef();
+            }
+        } catch (Throwable e) {
+            log.error("close", e);
+        }
+    }
+
+    /**
+     * 有查询线程池时，按段顺序将相邻的段划分为不少于searchSliceDocs个文档的切片，各切片并行查询；
+     * 只有一个切片时不使用线程池
+     */
+    private IndexSearcher newSearcher(DirectoryReader reader) {
+        if (searchExecutor == null) {
+            return new IndexSearcher(reader);
+        }
+        IndexSearcher.LeafSlice[] leafSlices = slices(reader.leaves(), searchSliceDocs);
+        if (leafSlices.length <= 1) {
+            return new IndexSearcher(reader);
+        }
+        // 父类构造时调用slices，匿名类捕获的变量在父类构造前已赋值
+        return new IndexSearcher(reader, searchExecutor) {
+            @Override
+            protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+                return leafSlices;
+            }
+        };
+    }
+
+    private static IndexSearcher.LeafSlice[] slices(List<LeafReaderContext> leaves, int sliceDocs) {
+        List<IndexSearcher.LeafSlice> slices = new ArrayList<>();
+        List<LeafReaderContext> slice = new ArrayList<>();
+        int docs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            slice.add(leaf);
+            docs += leaf.reader().maxDoc();
+            if (docs >= sliceDocs) {
+                slices.add(new IndexSearcher.LeafSlice(slice.toArray(new LeafReaderContext[0])));
+                slice.clear();
+                docs = 0;
+            }
+        }
+        if (!slice.isEmpty()) {
+            slices.add(new IndexSearcher.LeafSlice(slice.toArray(new LeafReaderContext[0])));
+        }
+        return slices.toArray(new IndexSearcher.LeafSlice[0]);
+    }
+
+    /**
+     * 当前查询的切片数，单线程查询时为1
+     */
+    public int getSearchSlices() {
+        IndexSearcher.LeafSlice[] slices = searcher.getSlices();
+        return (slices == null) ? 1 : slices.length;
+    }
+
+    /**
+     * 记录打开的IndexReader，关闭时减少计数
+     */
+    private DirectoryReader track(DirectoryReader reader) {
+        openReaders.incrementAndGet();
+        reader.getReaderCacheHelper().addClosedListener(key -> openReaders.decrementAndGet());
+        return reader;
+    }
+
+    /**
+     * 打开的IndexReader数（包括等待延迟关闭的）
+     */
+    public int getOpenReaders() {
+        return openReaders.get();
+    }
+
     /**
      * 目录
      */
-    public SortedSet<String> list() throws IOException {
+    public SortedSet<String> list() {
         log.debug("list");
-        IndexSearcher searcher = this.searcher;
-        IndexReader reader = searcher.getIndexReader();
-        // 读取正向索引
-        SortedSet<String> keys = new TreeSet<>();
-        for (LeafReaderContext leaf : reader.leaves()) {
-            LeafReader leafReader = leaf.reader();
-            SortedDocValues docValues = DocValues.getSorted(leafReader, KEY);
-            while (true) {
-                int doc = docValues.nextDoc();
-                if (doc == SortedDocValues.NO_MORE_DOCS) {
-                    break;
-                }
-                keys.add(docValues.binaryValue().utf8ToString());
-            }
+        return tocTree.keys();
+    }
+
+    /**
+     * 目录树，每次提交时构建
+     */
+    public TocTree getTocTree() {
+        return tocTree;
+    }
+
+    /**
+     * 输入提示：标题（包括全拼、首字母）、文件路径前缀匹配，按修改时间倒序
+     */
+    public List<Suggester.Suggestion> suggest(String text, int n) throws IOException {
+        log.debug("suggest {} {}", text, n);
+        return suggester.lookup(text, n);
+    }
+
+    /**
+     * 输入提示，每次提交后异步构建
+     */
+    public Suggester getSuggester() {
+        return suggester;
+    }
+
+    /**
+     * 等待已提交的输入提示构建完成
+     */
+    public Suggester awaitSuggester() throws InterruptedException, ExecutionException {
+        Future<?> future = suggesterBuild;
+        if (future != null) {
+            future.get();
         }
-        return keys;
+        return suggester;
     }
 
     /**
@@ -188,30 +403,94 @@ public class Markup implements AutoCloseable {
             return null;
         }
 
-        IndexSearcher searcher = this.searcher;
         Query query = new TermQuery(new Term(KEY, key));
         log.debug("query {}", query);
 
-        ScoreDoc[] scoreDocs = searcher.search(query, 1).scoreDocs;
-        return (scoreDocs.length == 0) ? null :
-                toMarkdown(searcher.doc(scoreDocs[0].doc));
+        IndexSearcher searcher = acquireSearcher();
+        try {
+            ScoreDoc[] scoreDocs = searcher.search(query, 1).scoreDocs;
+            return (scoreDocs.length == 0) ? null :
+                    toMarkdown(searcher.doc(scoreDocs[0].doc));
+        } finally {
+            releaseSearcher(searcher);
+        }
+    }
+
+    /**
+     * 获取当前searcher并增加索引引用计数，查询结束（包括读取文档）前索引不会被关闭
+     */
+    private IndexSearcher acquireSearcher() {
+        while (true) {
+            IndexSearcher searcher = this.searcher;
+            if (searcher.getIndexReader().tryIncRef()) {
+                return searcher;
+            }
+            if (searcher == this.searcher) {
+                // 已关闭
+                throw new AlreadyClosedException("this IndexReader is closed");
+            }
+            // 已替换为新的searcher，重试
+        }
+    }
+
+    private void releaseSearcher(IndexSearcher searcher) throws IOException {
+        searcher.getIndexReader().decRef();
     }
 
     public SearchResult<Markdown> search(SearchCursor cursor) throws IOException {
-        IndexSearcher searcher = this.searcher;
+        return search(cursor, 0);
+    }
+
+    /**
+     * 搜索，facetDepth大于0时同时统计命中文档所在的前facetDepth级目录
+     */
+    public SearchResult<Markdown> search(SearchCursor cursor, int facetDepth) throws IOException {
+        IndexSearcher searcher = acquireSearcher();
+        try {
+            return search(searcher, cursor, facetDepth);
+        } finally {
+            releaseSearcher(searcher);
+        }
+    }
+
+    private SearchResult<Markdown> search(IndexSearcher searcher, SearchCursor cursor, int facetDepth) throws IOException {
 
         SearchCursor next = new SearchCursor();
         next.setPrefix(cursor.getPrefix());
         next.setKeyword(cursor.getKeyword());
         next.setCount(cursor.getCount());
         next.setOffset(cursor.getOffset() + cursor.getCount());
+        next.setSort(cursor.getSort());
+        next.setCreatedFrom(cursor.getCreatedFrom());
+        next.setCreatedTo(cursor.getCreatedTo());
+        next.setModifiedFrom(cursor.getModifiedFrom());
+        next.setModifiedTo(cursor.getModifiedTo());
 
-        Query query = buildSearchQuery(cursor.getPrefix(), cursor.getKeyword());
-        Sort sort = buildSearchSort(cursor.getPrefix(), cursor.getKeyword());
+        Query query = buildSearchQuery(cursor);
+        Sort sort = buildSearchSort(cursor);
         log.debug("query {} {} {}", query, cursor.getKey(), cursor.getCount());
 
-        ScoreDoc[] scoreDocs = searcher.search(query, next.getOffset(), sort).scoreDocs;
+        SearchEvent event = Jfr.AVAILABLE ? new SearchEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long start = System.nanoTime();
+        SearchCollectorManager collectorManager = null;
+        TopFieldDocs topDocs;
+        if (sort != SORT_BY_CREATED && facetDepth <= 0) {
+            topDocs = searcher.search(query, next.getOffset(), sort);
+        } else {
+            // 按创建时间排序时与索引排序一致，不统计总命中数（totalHits为估计值），各段收集够n个后提前结束；
+            // 分面统计与TopDocs同一次遍历（提前结束的段分面统计继续收集）
+            int numHits = Integer.max(1, Integer.min(next.getOffset(), searcher.getIndexReader().maxDoc()));
+            collectorManager = new SearchCollectorManager(sort, numHits, sort != SORT_BY_CREATED,
+                    (facetDepth > 0) ? KEY : null, facetDepth);
+            topDocs = searcher.search(query, collectorManager);
+        }
+        long collectionTime = System.nanoTime() - start;
+        ScoreDoc[] scoreDocs = topDocs.scoreDocs;
         LinkedList<Markdown> list = new LinkedList<>();
+        start = System.nanoTime();
         for (int i = scoreDocs.length - 1; i >= Integer.max(scoreDocs.length - cursor.getCount(), 0); i--) {
             Document document = searcher.doc(scoreDocs[i].doc);
             String key = document.get(KEY);
@@ -220,9 +499,21 @@ public class Markup implements AutoCloseable {
             }
             list.addFirst(toMarkdown(document));
         }
+        long loadTime = System.nanoTime() - start;
+        if (event != null && event.shouldCommit()) {
+            event.query = query.toString();
+            event.hits = topDocs.totalHits;
+            event.returned = list.size();
+            event.collectionTime = collectionTime;
+            event.loadTime = loadTime;
+            event.commit();
+        }
 
         SearchResult<Markdown> result = new SearchResult<>();
         result.setList(list);
+        if (collectorManager != null) {
+            result.setFacets(collectorManager.getFacets());
+        }
         if (!list.isEmpty()) {
             next.setKey(list.getLast().getKey());
             result.setCursor(next.toString());
@@ -230,11 +521,21 @@ public class Markup implements AutoCloseable {
         return result;
     }
 
-    protected Query buildSearchQuery(String prefix, String keyword) throws IOException {
+    protected Query buildSearchQuery(SearchCursor cursor) throws IOException {
+        String prefix = cursor.getPrefix();
+        String keyword = cursor.getKeyword();
         int n = 0;
         BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        // 时间范围，BKD树查询
+        n += addRangeFilter(builder, CREATED, cursor.getCreatedFrom(), cursor.getCreatedTo());
+        n += addRangeFilter(builder, MODIFIED, cursor.getModifiedFrom(), cursor.getModifiedTo());
         if (!Strings.isNullOrEmpty(prefix)) {
-            builder.add(new PrefixQuery(new Term(KEY, prefix)), BooleanClause.Occur.FILTER);
+            if (prefix.endsWith("/")) {
+                // 目录，单个词项
+                builder.add(new TermQuery(new Term(DIRECTORY, prefix)), BooleanClause.Occur.FILTER);
+            } else {
+                builder.add(new PrefixQuery(new Term(KEY, prefix)), BooleanClause.Occur.FILTER);
+            }
             n++;
         }
         if (!Strings.isNullOrEmpty(keyword)) {
@@ -260,13 +561,40 @@ public class Markup implements AutoCloseable {
         return builder.build();
     }
 
-    protected Sort buildSearchSort(String prefix, String keyword) {
-        if (Strings.isNullOrEmpty(keyword)) {
-            // 无关键词，按创建时间
-            return SORT_BY_CREATED;
-        } else {
-            // 有关键词，按相关性
-            return Sort.RELEVANCE;
+    /**
+     * 时间范围 [from, to)
+     */
+    private static int addRangeFilter(BooleanQuery.Builder builder, String field, Long from, Long to) {
+        if (from == null && to == null) {
+            return 0;
+        }
+        long lowerValue = (from == null) ? Long.MIN_VALUE : from;
+        long upperValue = (to == null) ? Long.MAX_VALUE : Math.subtractExact(to, 1);
+        builder.add(LongPoint.newRangeQuery(field, lowerValue, upperValue), BooleanClause.Occur.FILTER);
+        return 1;
+    }
+
+    protected Sort buildSearchSort(SearchCursor cursor) {
+        if (cursor.getSort() == null) {
+            if (Strings.isNullOrEmpty(cursor.getKeyword())) {
+                // 无关键词，按创建时间
+                return SORT_BY_CREATED;
+            } else {
+                // 有关键词，按相关性
+                return Sort.RELEVANCE;
+            }
+        }
+        switch (cursor.getSort()) {
+            case SearchCursor.SORT_RELEVANCE:
+                return Sort.RELEVANCE;
+            case SearchCursor.SORT_CREATED:
+                return SORT_BY_CREATED;
+            case SearchCursor.SORT_MODIFIED:
+                return SORT_BY_MODIFIED;
+            case SearchCursor.SORT_KEY:
+                return SORT_BY_KEY;
+            default:
+                throw new IllegalArgumentException("sort: " + cursor.getSort());
         }
     }
 
@@ -275,13 +603,70 @@ public class Markup implements AutoCloseable {
         return key != null && key.endsWith(".md");
     }
 
-    public synchronized void update() throws Exception {
+    /**
+     * 更新，返回各阶段耗时及计数，保留最近的更新报告
+     *
+     * @throws UpdateException 更新失败，附带本次更新的报告
+     */
+    public synchronized UpdateReport update() throws UpdateException {
+        UpdateReport report = new UpdateReport();
+        boolean bulk = false;
+        try {
+            bulk = isBulkBuild();
+            update(report, bulk);
+            return report;
+        } catch (Exception e) {
+            report.setError(e.toString());
+            throw new UpdateException(report, e);
+        } finally {
+            report.finish();
+            if (bulk) {
+                log.info("bulk build {}", report);
+            } else {
+                log.debug("update {}", report);
+            }
+            synchronized (updateReports) {
+                if (updateReports.size() == UPDATE_REPORTS) {
+                    updateReports.removeFirst();
+                }
+                updateReports.addLast(report);
+            }
+            lastUpdateReport = report;
+        }
+    }
+
+    /**
+     * 最近的更新报告，按时间倒序
+     */
+    public List<UpdateReport> getUpdateReports() {
+        synchronized (updateReports) {
+            List<UpdateReport> list = new ArrayList<>(updateReports);
+            Collections.reverse(list);
+            return list;
+        }
+    }
+
+    /**
+     * 首次更新且索引为空，所有文档都是新增，可批量建索引。
+     * 以IndexWriter（含未提交的缓冲文档）判断，批量建索引失败后重试时按KEY更新，不会重复添加
+     */
+    private boolean isBulkBuild() {
+        return committed == null && writer.getDocStats().maxDoc == 0;
+    }
+
+    private void update(UpdateReport report, boolean bulk) throws Exception {
         // 更新
         Set<String> indexKeys = new HashSet<>();
         Set<String> deleteKeys = new HashSet<>();
-        gitRepository.gitUpdate();
+        report.setOldCommit(committed == null ? null : committed.name());
+        gitRepository.gitUpdate(report);
         RevCommit head = gitRepository.getHeadCommit();
-        for (DiffEntry diffEntry : gitRepository.gitDiff(committed, head)) {
+        report.setNewCommit(head.name());
+        long start = System.nanoTime();
+        List<DiffEntry> diffEntries = gitRepository.gitDiff(committed, head);
+        report.addPhase(UpdateReport.GIT_DIFF, System.nanoTime() - start);
+        report.addCount(UpdateReport.DIFF_ENTRIES, diffEntries.size());
+        for (DiffEntry diffEntry : diffEntries) {
             switch (diffEntry.getChangeType()) {
                 case ADD:
                 case MODIFY:
@@ -312,25 +697,148 @@ public class Markup implements AutoCloseable {
             }
         }
 
-        // TODO 多线程优化
-        for (String key : indexKeys) {
-            index(readMarkdown(key));
+        if (bulk) {
+            bulkIndex(indexKeys, report);
+        } else {
+            // TODO 多线程优化
+            for (String key : indexKeys) {
+                Markdown markdown = readMarkdown(key, report);
+                start = System.nanoTime();
+                index(markdown);
+                report.addPhase(UpdateReport.UPDATE_DOCUMENT, System.nanoTime() - start);
+                if (markdown != null) {
+                    report.addCount(UpdateReport.DOCS_INDEXED, 1);
+                }
+            }
         }
+        start = System.nanoTime();
         delete(deleteKeys);
+        report.addPhase(UpdateReport.DELETE_DOCUMENT, System.nanoTime() - start);
+        report.addCount(UpdateReport.DOCS_DELETED, deleteKeys.size());
         if (!indexKeys.isEmpty() || !deleteKeys.isEmpty()) {
             // 有新增或删除，提交更新
-            commit();
+            commit(report);
         }
         committed = head;
     }
 
+    /**
+     * 批量建索引：加大内存缓冲减少小段，批量添加（无需按KEY删除旧文档），最后合并为少量段
+     */
+    private void bulkIndex(Collection<String> keys, UpdateReport report) throws IOException {
+        LiveIndexWriterConfig config = writer.getConfig();
+        double ramBufferSizeMB = config.getRAMBufferSizeMB();
+        config.setRAMBufferSizeMB(BULK_RAM_BUFFER_MB);
+        try {
+            List<Document> batch = new ArrayList<>(BULK_BATCH_SIZE);
+            for (String key : keys) {
+                Markdown markdown = readMarkdown(key, report);
+                if (markdown == null) {
+                    continue;
+                }
+                batch.add(fromMarkdown(markdown));
+                if (batch.size() == BULK_BATCH_SIZE) {
+                    addDocuments(batch, report);
+                }
+            }
+            addDocuments(batch, report);
+            long start = System.nanoTime();
+            writer.forceMerge(BULK_MAX_SEGMENTS);
+            report.addPhase(UpdateReport.FORCE_MERGE, System.nanoTime() - start);
+        } finally {
+            config.setRAMBufferSizeMB(ramBufferSizeMB);
+        }
+    }
+
+    private void addDocuments(List<Document> batch, UpdateReport report) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        writer.addDocuments(batch);
+        report.addPhase(UpdateReport.ADD_DOCUMENTS, System.nanoTime() - start);
+        report.addCount(UpdateReport.DOCS_INDEXED, batch.size());
+        batch.clear();
+    }
+
+    /**
+     * 索引、更新状态及缓存统计
+     */
+    public void writeMetrics(PrometheusText text) {
+        IndexReader reader = searcher.getIndexReader();
+        text.metric("markup_index_docs", "gauge", "Indexed documents.")
+                .sample("markup_index_docs", reader.numDocs());
+        text.metric("markup_index_segments", "gauge", "Index segments.")
+                .sample("markup_index_segments", reader.leaves().size());
+        text.metric("markup_index_search_slices", "gauge", "Index slices searched in parallel, 1 if single-threaded.")
+                .sample("markup_index_search_slices", getSearchSlices());
+        text.metric("markup_index_ram_bytes", "gauge", "Index memory usage.")
+                .sample("markup_index_ram_bytes", getDirectorySize(), "area", "directory")
+                .sample("markup_index_ram_bytes", writer.ramBytesUsed(), "area", "writer");
+        text.metric("markup_index_open_readers", "gauge", "Open index readers, including readers pending close.")
+                .sample("markup_index_open_readers", getOpenReaders());
+        UpdateReport updateReport = lastUpdateReport;
+        if (updateReport != null) {
+            text.metric("markup_update_duration_seconds", "gauge", "Duration of the last update.")
+                    .sample("markup_update_duration_seconds", updateReport.getDuration() / 1000);
+            text.metric("markup_update_timestamp_seconds", "gauge", "Time of the last update.")
+                    .sample("markup_update_timestamp_seconds", updateReport.getTimestamp().getTime() / 1000);
+        }
+        RevCommit commit = committed;
+        if (commit != null) {
+            text.metric("markup_update_commit_info", "gauge", "Indexed commit.")
+                    .sample("markup_update_commit_info", 1, "commit", commit.name());
+        }
+        gitRepository.writeMetrics(text);
+    }
+
+    /**
+     * 索引文件总大小，合并中被删除的文件忽略
+     */
+    private long getDirectorySize() {
+        long size = 0;
+        try {
+            for (String file : index.listAll()) {
+                try {
+                    size += index.fileLength(file);
+                } catch (IOException ignore) {
+                }
+            }
+        } catch (IOException e) {
+            log.warn("listAll", e);
+        }
+        return size;
+    }
+
+    /**
+     * 关闭当前索引，等待进行中的查询释放引用（索引真正关闭），最多等待3秒
+     */
+    private void closeSearcher() {
+        if (searcher == null) {
+            return;
+        }
+        IndexReader reader = searcher.getIndexReader();
+        try {
+            CountDownLatch closed = new CountDownLatch(1);
+            reader.getReaderCacheHelper().addClosedListener(key -> closed.countDown());
+            reader.close();
+            closed.await(3, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            log.error("close", e);
+        }
+    }
+
     @Override
     public synchronized void close() {
         log.info("close");
         shutdown(executor);
-        if (searcher != null) {
-            close(searcher.getIndexReader());
-        }
+        shutdown(suggesterExecutor);
+        decRef(suggesterReader.getAndSet(null));
+        // 进行中的查询释放索引后再关闭查询线程池
+        closeSearcher();
+        shutdown(searchExecutor);
         close(writer);
         close(analyzer);
         close(index);
@@ -338,12 +846,26 @@ public class Markup implements AutoCloseable {
     }
 
     public Markdown readMarkdown(String key) throws IOException {
+        return readMarkdown(key, new UpdateReport());
+    }
+
+    private Markdown readMarkdown(String key, UpdateReport report) throws IOException {
         try {
             Markdown markdown = new Markdown();
             markdown.setKey(key);
-            markdown.setContent(gitRepository.readUtf8(key));
+            long start = System.nanoTime();
+            ByteBuffer content = gitRepository.read(key);
+            markdown.setContent(new String(content.array(), StandardCharsets.UTF_8));
+            report.addPhase(UpdateReport.READ_MARKDOWN, System.nanoTime() - start);
+            report.addCount(UpdateReport.FILES_READ, 1);
+            report.addCount(UpdateReport.BYTES_READ, content.remaining());
+            start = System.nanoTime();
             markdown.setHtml(render(markdown.getContent()));
-            markdown.setCreated(gitRepository.getCreated(key));
+            report.addPhase(UpdateReport.RENDER, System.nanoTime() - start);
+            report.addCount(UpdateReport.BYTES_RENDERED, Utf8.encodedLength(markdown.getHtml()));
+            start = System.nanoTime();
+            gitRepository.readCommitTime(markdown);
+            report.addPhase(UpdateReport.GET_CREATED, System.nanoTime() - start);
             return markdown;
         } catch (NoSuchFileException | FileNotFoundException e) {
             return null;
@@ -363,13 +885,47 @@ public class Markup implements AutoCloseable {
         document.add(new TextField(CONTENT, markdown.getContent(), Field.Store.YES));
         document.add(new StoredField(HTML, markdown.getHtml()));
         document.add(new StringField(CREATED, DateTools.dateToString(markdown.getCreated(), DateTools.Resolution.SECOND), Field.Store.YES));
+        // 所有上级目录（以/结尾），提供目录过滤
+        for (int i = markdown.getKey().indexOf('/'); i >= 0; i = markdown.getKey().indexOf('/', i + 1)) {
+            document.add(new StringField(DIRECTORY, markdown.getKey().substring(0, i + 1), Field.Store.NO));
+        }
+        // TITLE 正向索引，提供输入提示
+        document.add(new SortedDocValuesField(TITLE, new BytesRef(getTitle(markdown))));
         // KEY 正向索引，提供目录查询
         document.add(new SortedDocValuesField(KEY, new BytesRef(markdown.getKey())));
         // CREATED 正向索引，提供排序
         document.add(new NumericDocValuesField(CREATED, markdown.getCreated().getTime()));
+        // 时间范围查询
+        document.add(new LongPoint(CREATED, markdown.getCreated().getTime()));
+        // MODIFIED 未知时（直接调用index）与 CREATED 相同
+        long modified = (markdown.getModified() == null ? markdown.getCreated() : markdown.getModified()).getTime();
+        document.add(new StoredField(MODIFIED, modified));
+        document.add(new NumericDocValuesField(MODIFIED, modified));
+        document.add(new LongPoint(MODIFIED, modified));
         return document;
     }
 
+    /**
+     * 标题：第一个ATX标题行（忽略代码块），没有时为文件名（不含扩展名）
+     */
+    static String getTitle(Markdown markdown) {
+        boolean fenced = false;
+        for (String line : markdown.getContent().split("\n")) {
+            line = line.trim();
+            if (line.startsWith("```") || line.startsWith("~~~")) {
+                fenced = !fenced;
+            } else if (!fenced && line.startsWith("#")) {
+                String title = line.replaceFirst("^#{1,6}\\s+", "").replaceFirst("\\s+#+$", "").trim();
+                if (!title.isEmpty() && !title.startsWith("#")) {
+                    return title;
+                }
+            }
+        }
+        String name = markdown.getKey().substring(markdown.getKey().lastIndexOf('/') + 1);
+        int dot = name.lastIndexOf('.');
+        return (dot > 0) ? name.substring(0, dot) : name;
+    }
+
     private Markdown toMarkdown(Document document) {
         try {
             Markdown markdown = new Markdown();
@@ -377,6 +933,7 @@ public class Markup implements AutoCloseable {
             markdown.setContent(document.get(CONTENT));
             markdown.setHtml(document.get(HTML));
             markdown.setCreated(DateTools.stringToDate(document.get(CREATED)));
+            markdown.setModified(new Date(document.getField(MODIFIED).numericValue().longValue()));
             return markdown;
         } catch (ParseException e) {
             throw new AssertionError(e);
@@ -3,6 +3,11 @@ package cc.whohow.markup;
 public class MarkupConfiguration {
     private String git;
     private int port;
+    private String transport;
+    private int acceptors;
+    private int workerThreads;
+    private int searchThreads;
+    private int searchSliceDocs;
 
     public String getGit() {
         return git;
@@ -19,4 +24,59 @@ public class MarkupConfiguration {
     public void setPort(int port) {
         this.port = port;
     }
+
+    /**
+     * 网络传输实现：nio（默认）、epoll
+     */
+    public String getTransport() {
+        return transport;
+    }
+
+    public void setTransport(String transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * 监听通道数（SO_REUSEPORT，仅epoll）
+     */
+    public int getAcceptors() {
+        return acceptors;
+    }
+
+    public void setAcceptors(int acceptors) {
+        this.acceptors = acceptors;
+    }
+
+    /**
+     * IO线程数，0为默认（CPU核数*2）
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    /**
+     * 查询线程数，0为不使用线程池（单线程查询）
+     */
+    public int getSearchThreads() {
+        return searchThreads;
+    }
+
+    public void setSearchThreads(int searchThreads) {
+        this.searchThreads = searchThreads;
+    }
+
+    /**
+     * 并行查询切片最少文档数，0为默认（10000）
+     */
+    public int getSearchSliceDocs() {
+        return searchSliceDocs;
+    }
+
+    public void setSearchSliceDocs(int searchSliceDocs) {
+        this.searchSliceDocs = searchSliceDocs;
+    }
 }
@@ -1,11 +1,16 @@
 package cc.whohow.markup;
 
 import cc.whohow.markup.impl.ContentTypes;
-import cc.whohow.markup.impl.GitRepositoryFileVisitor;
+import cc.whohow.markup.impl.FileContentCache;
+import cc.whohow.markup.impl.GitEvent;
+import cc.whohow.markup.impl.Jfr;
+import cc.whohow.markup.impl.GitTreeSnapshot;
 import cc.whohow.markup.impl.Metadata;
+import cc.whohow.markup.impl.PrometheusText;
+import cc.whohow.markup.impl.UpdateReport;
 import com.google.common.base.Strings;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.jgit.api.Git;
@@ -13,11 +18,14 @@ import org.eclipse.jgit.api.MergeCommand;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.io.NullOutputStream;
 
 import java.io.IOException;
@@ -29,31 +37,37 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * Git仓库
  */
 public class MarkupGitRepository implements AutoCloseable {
     private static final Logger log = LogManager.getLogger();
+    private static final long CONTENT_CACHE_SIZE = 16 * 1024 * 1024;
+    private static final long CONTENT_CACHE_FILE_SIZE = 256 * 1024;
     // git
     private final URI uri;
     private final Path repo;
-    // metadata
-    private final Cache<String, Metadata> metadataCache;
+    // content
+    private final FileContentCache contentCache;
     // mutable git
     private volatile Git git;
+    // metadata
+    private volatile GitTreeSnapshot snapshot;
     // state
     private volatile boolean updating;
+    // metrics
+    private final LongAdder metadataHits = new LongAdder();
+    private final LongAdder metadataMisses = new LongAdder();
 
     public MarkupGitRepository(MarkupConfiguration configuration) {
         uri = URI.create(configuration.getGit());
         repo = Paths.get(getGitName());
-        metadataCache = CacheBuilder.newBuilder()
-                .maximumSize(1024)
-                .build();
+        snapshot = GitTreeSnapshot.EMPTY;
+        contentCache = new FileContentCache(CONTENT_CACHE_SIZE, CONTENT_CACHE_FILE_SIZE);
         updating = false;
     }
 
@@ -61,39 +75,105 @@ public class MarkupGitRepository implements AutoCloseable {
         return repo.resolve(path);
     }
 
-    public synchronized void gitUpdate() throws Exception {
+    public void gitUpdate() throws Exception {
+        gitUpdate(new UpdateReport());
+    }
+
+    /**
+     * 更新仓库，记录各阶段耗时
+     */
+    public synchronized void gitUpdate(UpdateReport report) throws Exception {
         if (git == null) {
             if (Files.exists(repo.resolve(".git"))) {
                 git = Git.open(repo.toFile());
             }
         }
+        RevCommit oldHead = (git == null) ? null : getHeadCommit();
+        long start = System.nanoTime();
         try {
             updating = true;
             if (git == null) {
                 gitClone();
+                report.addPhase(UpdateReport.GIT_CLONE, System.nanoTime() - start);
             } else {
                 gitPull();
+                report.addPhase(UpdateReport.GIT_PULL, System.nanoTime() - start);
             }
         } finally {
-            updating = false;
-            metadataCache.invalidateAll();
+            // 先清除内容缓存再发布新快照，最后结束更新状态，避免旧内容以新快照的元数据返回
+            try {
+                start = System.nanoTime();
+                invalidateContent(oldHead);
+                report.addPhase(UpdateReport.INVALIDATE, System.nanoTime() - start);
+                if (git != null) {
+                    start = System.nanoTime();
+                    updateSnapshot();
+                    report.addPhase(UpdateReport.SNAPSHOT, System.nanoTime() - start);
+                }
+            } finally {
+                updating = false;
+            }
         }
     }
 
+    /**
+     * 重建文件树元数据快照，原子替换
+     */
+    private void updateSnapshot() throws IOException {
+        GitTreeSnapshot newSnapshot = GitTreeSnapshot.build(git.getRepository(), getHeadCommit(), snapshot);
+        log.debug("snapshot {} {}", newSnapshot.getCommit(), newSnapshot.size());
+        snapshot = newSnapshot;
+    }
+
+    /**
+     * 根据变更释放旧版本的文件内容缓存（按blobId缓存，不会读到旧内容，只是提前释放内存）
+     */
+    private void invalidateContent(RevCommit oldHead) throws IOException {
+        if (oldHead == null) {
+            contentCache.invalidateAll();
+            return;
+        }
+        Set<String> keys = new HashSet<>();
+        for (DiffEntry diffEntry : gitDiff(oldHead, getHeadCommit())) {
+            if (diffEntry.getChangeType() != DiffEntry.ChangeType.ADD && diffEntry.getOldId().isComplete()) {
+                keys.add(diffEntry.getOldId().name());
+            }
+        }
+        contentCache.invalidate(keys);
+    }
+
     private void gitClone() throws Exception {
         log.debug("git clone {} {}", uri, repo);
+        GitEvent event = Jfr.AVAILABLE ? new GitEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
         git = Git.cloneRepository()
                 .setURI(uri.toString())
                 .setDirectory(repo.toFile())
                 .setCloneAllBranches(true)
                 .call();
+        if (event != null && event.shouldCommit()) {
+            event.operation = GitEvent.CLONE;
+            event.newCommit = getHeadCommit().name();
+            event.commit();
+        }
     }
 
     private void gitPull() throws Exception {
         log.debug("git pull");
+        GitEvent event = Jfr.AVAILABLE ? new GitEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
         git.pull()
                 .setFastForward(MergeCommand.FastForwardMode.FF_ONLY)
                 .call();
+        if (event != null && event.shouldCommit()) {
+            event.operation = GitEvent.PULL;
+            event.newCommit = getHeadCommit().name();
+            event.commit();
+        }
     }
 
     public RevCommit getHeadCommit() throws IOException {
@@ -131,35 +211,58 @@ public class MarkupGitRepository implements AutoCloseable {
             return Collections.emptyList();
         }
 
+        GitEvent event = Jfr.AVAILABLE ? new GitEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
         Repository repository = git.getRepository();
         try (DiffFormatter diff = new DiffFormatter(NullOutputStream.INSTANCE)) {
             diff.setRepository(repository);
-            return diff.scan(oldCommit, newCommit);
+            List<DiffEntry> diffEntries = diff.scan(oldCommit, newCommit);
+            if (event != null && event.shouldCommit()) {
+                event.operation = GitEvent.DIFF;
+                event.oldCommit = (oldCommit == null) ? null : oldCommit.name();
+                event.newCommit = newCommit.name();
+                event.entries = diffEntries.size();
+                event.commit();
+            }
+            return diffEntries;
         }
     }
 
     /**
      * 文件列表
      */
-    public SortedSet<String> list() throws IOException {
-        GitRepositoryFileVisitor visitor = new GitRepositoryFileVisitor();
-        Files.walkFileTree(repo, visitor);
-        return visitor.getFiles().stream()
-                .map(this::getKey)
-                .collect(Collectors.toCollection(TreeSet::new));
+    public SortedSet<String> list() {
+        return snapshot.keys();
     }
 
-    public Metadata getMetadata(String key) throws Exception {
+    /**
+     * 文件是否存在，读取当前快照，不访问文件系统
+     */
+    public boolean exists(String key) {
+        return snapshot.contains(key);
+    }
+
+    /**
+     * 文件元数据，读取当前快照，不访问文件系统；更新中工作区与快照不一致，直接读取文件
+     */
+    public Metadata getMetadata(String key) throws IOException {
         if (updating) {
             return readMetadata(key);
+        }
+        Metadata metadata = snapshot.get(key);
+        if (metadata == Metadata.NOT_FOUND) {
+            metadataMisses.increment();
         } else {
-            return metadataCache.get(key, () -> readMetadata(key));
+            metadataHits.increment();
         }
+        return metadata;
     }
 
     private Metadata readMetadata(String key) throws IOException {
         Path path = resolve(key);
-        if (Files.exists(path)) {
+        if (Files.isRegularFile(path)) {
             BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
             String contentType = ContentTypes.probeContentType(path);
             return new Metadata(attributes.size(), new Date(attributes.lastModifiedTime().toMillis()), contentType);
@@ -168,6 +271,25 @@ public class MarkupGitRepository implements AutoCloseable {
         }
     }
 
+    public GitTreeSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 读取缓存文件内容（热点小文件），未缓存时返回null
+     * <p>
+     * 按快照元数据中的blobId缓存，从Git对象库读取，与元数据（大小、修改时间）始终一致，不受工作区更新影响；
+     * 没有blobId（更新中直接读取文件的元数据）时不缓存
+     */
+    public ByteBuf readCached(String key, Metadata metadata) throws IOException {
+        ObjectId objectId = metadata.getObjectId();
+        if (objectId == null) {
+            return null;
+        }
+        return contentCache.get(objectId.name(), metadata.getSize(), buffer ->
+                git.getRepository().open(objectId, Constants.OBJ_BLOB).copyTo(new ByteBufOutputStream(buffer)));
+    }
+
     public ByteBuffer read(String key) throws IOException {
         return ByteBuffer.wrap(Files.readAllBytes(resolve(key)));
     }
@@ -183,6 +305,42 @@ public class MarkupGitRepository implements AutoCloseable {
         return new Date(getFirstCommit(key).getCommitTime() * 1000L);
     }
 
+    /**
+     * 读取文件创建时间（第一次提交）、修改时间（最后一次提交），只遍历一次提交历史
+     */
+    public void readCommitTime(Markdown markdown) throws IOException {
+        try (RevWalk revWalk = new RevWalk(git.getRepository())) {
+            revWalk.markStart(revWalk.parseCommit(git.getRepository().resolve(Constants.HEAD)));
+            // 只保留修改了该文件的提交
+            revWalk.setTreeFilter(AndTreeFilter.create(PathFilter.create(markdown.getKey()), TreeFilter.ANY_DIFF));
+            RevCommit last = revWalk.next();
+            RevCommit first = last;
+            for (RevCommit commit = last; commit != null; commit = revWalk.next()) {
+                first = commit;
+            }
+            markdown.setCreated(new Date(first.getCommitTime() * 1000L));
+            markdown.setModified(new Date(last.getCommitTime() * 1000L));
+        }
+    }
+
+    /**
+     * 文件元数据快照、文件内容缓存统计
+     */
+    public void writeMetrics(PrometheusText text) {
+        text.metric("markup_cache_entries", "gauge", "Cached entries.")
+                .sample("markup_cache_entries", snapshot.size(), "cache", "metadata")
+                .sample("markup_cache_entries", contentCache.size(), "cache", "content");
+        text.metric("markup_cache_bytes", "gauge", "Cached content bytes.")
+                .sample("markup_cache_bytes", contentCache.getWeight(), "cache", "content");
+        text.metric("markup_cache_requests_total", "counter", "Cache lookups by result.")
+                .sample("markup_cache_requests_total", metadataHits.sum(), "cache", "metadata", "result", "hit")
+                .sample("markup_cache_requests_total", metadataMisses.sum(), "cache", "metadata", "result", "miss")
+                .sample("markup_cache_requests_total", contentCache.getHitCount(), "cache", "content", "result", "hit")
+                .sample("markup_cache_requests_total", contentCache.getMissCount(), "cache", "content", "result", "miss");
+        text.metric("markup_cache_evictions_total", "counter", "Cache evictions.")
+                .sample("markup_cache_evictions_total", contentCache.getEvictionCount(), "cache", "content");
+    }
+
     private String getGitName() {
         Matcher matcher = Pattern.compile("(?<name>[^/]+)/?$")
                 .matcher(uri.getPath());
@@ -196,17 +354,9 @@ public class MarkupGitRepository implements AutoCloseable {
         throw new AssertionError();
     }
 
-    private String getKey(Path file) {
-        Path path = repo.relativize(file);
-        StringJoiner joiner = new StringJoiner("/");
-        for (Path p : path) {
-            joiner.add(p.toString());
-        }
-        return joiner.toString();
-    }
-
     @Override
     public void close() throws Exception {
+        contentCache.close();
         if (git != null) {
             git.close();
         }
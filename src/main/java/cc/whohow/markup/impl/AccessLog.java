@@ -0,0 +1,200 @@
+package cc.whohow.markup.impl;
+
+import com.fasterxml.jackson.core.util.BufferRecyclers;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步访问日志，IO线程无锁写入环形缓冲区，后台线程写入日志文件，缓冲区满时丢弃并计数
+ */
+public class AccessLog implements AutoCloseable {
+    private static final Logger log = LogManager.getLogger("access");
+    /**
+     * 空闲等待时间，无日志时指数退避
+     */
+    private static final long MIN_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    // 环形缓冲区（多生产者单消费者）
+    private final int mask;
+    private final Entry[] buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+    // 丢弃计数
+    private final LongAdder dropped = new LongAdder();
+    private long reportedDropped;
+    // 写入线程
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity 缓冲区大小，2的幂
+     */
+    public AccessLog(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of 2: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.buffer = new Entry[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.writer = new Thread(this::drain, "access-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 记录访问日志，不阻塞
+     *
+     * @return 缓冲区满时返回false
+     */
+    public boolean offer(Entry entry) {
+        while (true) {
+            long t = tail.get();
+            int index = (int) (t & mask);
+            long sequence = sequences.get(index);
+            if (sequence == t) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    buffer[index] = entry;
+                    sequences.lazySet(index, t + 1);
+                    return true;
+                }
+            } else if (sequence < t) {
+                dropped.increment();
+                return false;
+            }
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private Entry poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        Entry entry = buffer[index];
+        buffer[index] = null;
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+        return entry;
+    }
+
+    private void drain() {
+        StringBuilder line = new StringBuilder(256);
+        long idleNanos = MIN_IDLE_NANOS;
+        while (true) {
+            Entry entry = poll();
+            if (entry == null) {
+                reportDropped();
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(idleNanos);
+                idleNanos = Long.min(idleNanos * 2, MAX_IDLE_NANOS);
+                continue;
+            }
+            idleNanos = MIN_IDLE_NANOS;
+            try {
+                line.setLength(0);
+                entry.format(line);
+                log.info(line);
+            } catch (Throwable ignore) {
+            }
+        }
+    }
+
+    private void reportDropped() {
+        long total = dropped.sum();
+        if (total != reportedDropped) {
+            log.warn("{\"dropped\":{}}", total - reportedDropped);
+            reportedDropped = total;
+        }
+    }
+
+    /**
+     * 写出缓冲区中剩余的日志后停止写入线程，最多等待3秒
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(3));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 访问记录
+     */
+    public static class Entry {
+        /**
+         * 缓存命中（内存）
+         */
+        public static final String HIT = "HIT";
+        /**
+         * 缓存未命中（文件）
+         */
+        public static final String MISS = "MISS";
+
+        private final long timestamp;
+        private final String method;
+        private final String uri;
+        private int status;
+        private long bytes;
+        private String cache;
+        private long latency;
+
+        public Entry(String method, String uri) {
+            this.timestamp = System.currentTimeMillis();
+            this.method = method;
+            this.uri = uri;
+        }
+
+        public void setStatus(int status) {
+            this.status = status;
+        }
+
+        public void setBytes(long bytes) {
+            this.bytes = bytes;
+        }
+
+        public void setCache(String cache) {
+            this.cache = cache;
+        }
+
+        /**
+         * @param latency 耗时，微秒
+         */
+        public void setLatency(long latency) {
+            this.latency = latency;
+        }
+
+        private void format(StringBuilder line) {
+            line.append("{\"time\":\"").append(Instant.ofEpochMilli(timestamp))
+                    .append("\",\"method\":\"").append(method)
+                    .append("\",\"path\":\"");
+            BufferRecyclers.quoteAsJsonText(uri, line);
+            line.append("\",\"status\":").append(status)
+                    .append(",\"bytes\":").append(bytes);
+            if (cache != null) {
+                line.append(",\"cache\":\"").append(cache).append('"');
+            }
+            line.append(",\"latency_us\":").append(latency).append('}');
+        }
+    }
+}
@@ -1,53 +1,88 @@
 package cc.whohow.markup.impl;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.io.ByteStreams;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.Date;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * 打包静态文件
+ * 打包静态文件，启动时全部加载
  */
 public class ClasspathStatic {
+    private static final String ROOT = "/static/";
     /**
-     * 最后修改时间（启动时间）
+     * 首页预加载资源，目录树首次加载根目录（.toc?dir=）
      */
-    private Date lastModified;
+    private static final Map<String, String> PRELOAD = Collections.singletonMap("index.html",
+            "<index.js>; rel=preload; as=script, <.toc?dir=>; rel=preload; as=fetch; crossorigin");
     /**
-     * 内容缓存
+     * 最后修改时间（启动时间）
      */
-    private Cache<String, byte[]> content;
+    private final Date lastModified;
     /**
-     * 元数据缓存
+     * 预编码内容
      */
-    private Cache<String, Metadata> metadata;
+    private final Map<String, StaticContent> content;
+    // 统计
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
 
     public ClasspathStatic() {
         lastModified = new Date();
-        content = CacheBuilder.newBuilder()
-                .build();
-        metadata = CacheBuilder.newBuilder()
-                .build();
+        try {
+            Map<String, StaticContent> map = new HashMap<>();
+            for (String key : listKeys()) {
+                byte[] bytes = readContent(key);
+                map.put(key, new StaticContent(bytes, readMetadata(key, bytes), PRELOAD.get(key)));
+            }
+            content = Collections.unmodifiableMap(map);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    public byte[] read(String key) throws Exception {
-        return content.get(key, () -> readContent(key));
+    public StaticContent get(String key) {
+        StaticContent staticContent = content.get(key);
+        if (staticContent == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return staticContent;
     }
 
-    public Metadata getMetadata(String key) throws Exception {
-        return metadata.get(key, () -> readMetadata(key));
+    public boolean exists(String key) {
+        return content.containsKey(key);
     }
 
-    private Metadata readMetadata(String key) throws Exception {
-        URL url = getClass().getResource(getClasspath(key));
-        if (url == null) {
-            return Metadata.NOT_FOUND;
-        }
-        return new Metadata(read(key).length, lastModified, ContentTypes.probeContentType(key));
+    public Metadata getMetadata(String key) {
+        StaticContent staticContent = content.get(key);
+        return staticContent == null ? Metadata.NOT_FOUND : staticContent.getMetadata();
+    }
+
+    public Set<String> keys() {
+        return content.keySet();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private Metadata readMetadata(String key, byte[] bytes) {
+        return new Metadata(bytes.length, lastModified, ContentTypes.probeContentType(key));
     }
 
     private byte[] readContent(String key) throws IOException {
@@ -56,7 +91,44 @@ public class ClasspathStatic {
         }
     }
 
+    /**
+     * 列出打包静态文件，兼容目录及jar
+     */
+    private List<String> listKeys() throws IOException {
+        URL url = getClass().getResource(ROOT);
+        if (url == null) {
+            return Collections.emptyList();
+        }
+        try {
+            URI uri = url.toURI();
+            if ("jar".equals(uri.getScheme())) {
+                try (FileSystem fileSystem = FileSystems.newFileSystem(uri, Collections.emptyMap())) {
+                    return listKeys(fileSystem.getPath(ROOT));
+                }
+            }
+            return listKeys(Paths.get(uri));
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private List<String> listKeys(Path root) throws IOException {
+        try (Stream<Path> stream = Files.walk(root)) {
+            return stream.filter(Files::isRegularFile)
+                    .map(path -> getKey(root, path))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private String getKey(Path root, Path file) {
+        StringJoiner joiner = new StringJoiner("/");
+        for (Path p : root.relativize(file)) {
+            joiner.add(p.toString());
+        }
+        return joiner.toString();
+    }
+
     private String getClasspath(String key) {
-        return "/static/" + key;
+        return ROOT + key;
     }
 }
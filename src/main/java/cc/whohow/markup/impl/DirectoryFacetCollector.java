@@ -0,0 +1,113 @@
+package cc.whohow.markup.impl;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 目录分面统计：按文件路径正向索引（SortedDocValues）统计命中文档所在的前N级目录，与TopDocs在同一次遍历中收集
+ * <p>
+ * 段内先按序号计数，段结束时汇总：路径有序，同一目录下的文件序号连续，每个目录只需查找一次目录范围
+ */
+public class DirectoryFacetCollector extends SimpleCollector {
+    private final String field;
+    private final int depth;
+    private final Map<String, Integer> counts = new TreeMap<>();
+    private SortedDocValues values;
+    private int[] ordCounts;
+
+    /**
+     * @param field 路径字段（SortedDocValues）
+     * @param depth 目录层级，1表示顶级目录
+     */
+    public DirectoryFacetCollector(String field, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth: " + depth);
+        }
+        this.field = field;
+        this.depth = depth;
+    }
+
+    @Override
+    protected void doSetNextReader(LeafReaderContext context) throws IOException {
+        flush();
+        values = DocValues.getSorted(context.reader(), field);
+        ordCounts = new int[values.getValueCount()];
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        if (values.advanceExact(doc)) {
+            ordCounts[values.ordValue()]++;
+        }
+    }
+
+    @Override
+    public boolean needsScores() {
+        return false;
+    }
+
+    /**
+     * 目录（以/结尾）-> 命中数，按目录排序，目录层级不足的文件不计入
+     */
+    public Map<String, Integer> getCounts() throws IOException {
+        flush();
+        return Collections.unmodifiableMap(counts);
+    }
+
+    private void flush() throws IOException {
+        if (values == null) {
+            return;
+        }
+        int ord = 0;
+        while (ord < ordCounts.length) {
+            if (ordCounts[ord] == 0) {
+                ord++;
+                continue;
+            }
+            BytesRef key = values.lookupOrd(ord);
+            int length = getDirectoryLength(key);
+            if (length < 0) {
+                ord++;
+                continue;
+            }
+            BytesRef directory = new BytesRef(key.bytes, key.offset, length);
+            String name = directory.utf8ToString();
+            // 目录范围上界：末尾的'/'替换为'0'（'/' + 1）
+            BytesRef upper = BytesRef.deepCopyOf(directory);
+            upper.bytes[upper.offset + upper.length - 1] = '0';
+            int end = values.lookupTerm(upper);
+            if (end < 0) {
+                end = -end - 1;
+            }
+            int count = 0;
+            for (int i = ord; i < end; i++) {
+                count += ordCounts[i];
+            }
+            counts.merge(name, count, Integer::sum);
+            ord = end;
+        }
+        values = null;
+        ordCounts = null;
+    }
+
+    /**
+     * 前depth级目录的字节长度（包括末尾的'/'），层级不足返回-1
+     */
+    private int getDirectoryLength(BytesRef key) {
+        int n = 0;
+        for (int i = 0; i < key.length; i++) {
+            if (key.bytes[key.offset + i] == '/' && ++n == depth) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
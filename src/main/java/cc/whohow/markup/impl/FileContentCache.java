@@ -0,0 +1,165 @@
+package cc.whohow.markup.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.IllegalReferenceCountException;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点小文件缓存，内容保存在直接内存中，按字节数限制容量
+ * <p>
+ * 第一次访问只记录，第二次访问才加载，冷文件、大文件继续使用sendfile。
+ * 键需与内容一一对应（如Git blobId），同一个键不能对应不同内容
+ */
+public class FileContentCache implements AutoCloseable {
+    private final long maxFileSize;
+    /**
+     * 文件内容，移除时释放
+     */
+    private final Cache<String, ByteBuf> content;
+    /**
+     * 访问记录，过滤只访问一次的冷文件
+     */
+    private final Cache<String, Boolean> doorkeeper;
+    // 统计
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public FileContentCache(long maxSize, long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+        this.content = CacheBuilder.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((String key, ByteBuf value) -> value.capacity())
+                .removalListener(this::release)
+                .build();
+        this.doorkeeper = CacheBuilder.newBuilder()
+                .maximumSize(4096)
+                .build();
+    }
+
+    /**
+     * 读取缓存内容，未缓存时由loader写入size字节
+     *
+     * @return 共享内容（需由调用方释放），未缓存时返回null
+     */
+    public ByteBuf get(String key, long size, Loader loader) throws IOException {
+        if (size > maxFileSize) {
+            misses.increment();
+            return null;
+        }
+        ByteBuf buffer = content.getIfPresent(key);
+        if (buffer == null) {
+            if (doorkeeper.asMap().putIfAbsent(key, Boolean.TRUE) == null) {
+                misses.increment();
+                return null;
+            }
+            try {
+                buffer = content.get(key, () -> load(size, loader));
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+            doorkeeper.invalidate(key);
+        }
+        try {
+            ByteBuf duplicate = buffer.retainedDuplicate();
+            hits.increment();
+            return duplicate;
+        } catch (IllegalReferenceCountException e) {
+            // 并发移除，回退到sendfile
+            misses.increment();
+            return null;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long size() {
+        return content.size();
+    }
+
+    /**
+     * 缓存占用字节数
+     */
+    public long getWeight() {
+        return content.asMap().values().stream()
+                .mapToLong(ByteBuf::capacity)
+                .sum();
+    }
+
+    public void invalidate(Collection<String> keys) {
+        content.invalidateAll(keys);
+        doorkeeper.invalidateAll(keys);
+    }
+
+    public void invalidateAll() {
+        content.invalidateAll();
+        doorkeeper.invalidateAll();
+    }
+
+    private ByteBuf load(long size, Loader loader) throws IOException {
+        int length = (int) size;
+        ByteBuf buffer = Unpooled.directBuffer(length, length);
+        try {
+            try {
+                loader.load(buffer);
+            } catch (IndexOutOfBoundsException e) {
+                throw new IOException("size mismatch: " + length, e);
+            }
+            if (buffer.isWritable()) {
+                // 内容与大小不一致，不缓存
+                throw new IOException("size mismatch: " + buffer.writerIndex() + "/" + length);
+            }
+            return buffer.asReadOnly();
+        } catch (Throwable e) {
+            buffer.release();
+            throw e;
+        }
+    }
+
+    private void release(RemovalNotification<String, ByteBuf> notification) {
+        if (notification.wasEvicted()) {
+            evictions.increment();
+        }
+        ByteBuf buffer = notification.getValue();
+        if (buffer != null) {
+            buffer.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        invalidateAll();
+    }
+
+    /**
+     * 内容加载
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * 写入内容，容量即为内容大小，超出时抛出异常
+         */
+        void load(ByteBuf buffer) throws IOException;
+    }
+}
@@ -0,0 +1,25 @@
+package cc.whohow.markup.impl;
+
+import jdk.jfr.*;
+
+/**
+ * JFR事件：Git操作（clone、pull、diff）
+ */
+@Name("cc.whohow.markup.Git")
+@Label("Git")
+@Category("Markup")
+@StackTrace(false)
+public class GitEvent extends Event {
+    public static final String CLONE = "clone";
+    public static final String PULL = "pull";
+    public static final String DIFF = "diff";
+
+    @Label("Operation")
+    public String operation;
+    @Label("Old Commit")
+    public String oldCommit;
+    @Label("New Commit")
+    public String newCommit;
+    @Label("Diff Entries")
+    public int entries;
+}
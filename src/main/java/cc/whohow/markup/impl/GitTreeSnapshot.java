@@ -0,0 +1,92 @@
+package cc.whohow.markup.impl;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Git提交文件树元数据快照（不可变），每次更新后重建
+ */
+public class GitTreeSnapshot {
+    /**
+     * 空快照
+     */
+    public static final GitTreeSnapshot EMPTY = new GitTreeSnapshot(null, Collections.emptyMap());
+
+    private final ObjectId commit;
+    /**
+     * 文件元数据，哈希索引，不存在的路径O(1)判定
+     */
+    private final Map<String, Metadata> files;
+    /**
+     * 有序文件列表
+     */
+    private final NavigableSet<String> keys;
+
+    private GitTreeSnapshot(ObjectId commit, Map<String, Metadata> files) {
+        this.commit = commit;
+        this.files = files;
+        this.keys = Collections.unmodifiableNavigableSet(new TreeSet<>(files.keySet()));
+    }
+
+    /**
+     * 读取提交文件树，未变更文件（blobId相同）复用上一快照元数据
+     */
+    public static GitTreeSnapshot build(Repository repository, RevCommit commit, GitTreeSnapshot previous) throws IOException {
+        if (commit.equals(previous.commit)) {
+            return previous;
+        }
+        Date lastModified = new Date(commit.getCommitTime() * 1000L);
+        Map<String, Metadata> files = new HashMap<>();
+        try (ObjectReader reader = repository.newObjectReader();
+             TreeWalk treeWalk = new TreeWalk(reader)) {
+            treeWalk.addTree(commit.getTree());
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                FileMode fileMode = treeWalk.getFileMode(0);
+                if (fileMode.getObjectType() != Constants.OBJ_BLOB || fileMode == FileMode.SYMLINK) {
+                    continue;
+                }
+                String key = treeWalk.getPathString();
+                ObjectId objectId = treeWalk.getObjectId(0);
+                Metadata metadata = previous.files.get(key);
+                if (metadata == null || !objectId.equals(metadata.getObjectId())) {
+                    metadata = new Metadata(
+                            reader.getObjectSize(objectId, Constants.OBJ_BLOB),
+                            lastModified,
+                            ContentTypes.probeContentType(treeWalk.getNameString()),
+                            objectId);
+                }
+                files.put(key, metadata);
+            }
+        }
+        return new GitTreeSnapshot(commit.copy(), Collections.unmodifiableMap(files));
+    }
+
+    public ObjectId getCommit() {
+        return commit;
+    }
+
+    public Metadata get(String key) {
+        return files.getOrDefault(key, Metadata.NOT_FOUND);
+    }
+
+    public boolean contains(String key) {
+        return files.containsKey(key);
+    }
+
+    public NavigableSet<String> keys() {
+        return keys;
+    }
+
+    public int size() {
+        return files.size();
+    }
+}
@@ -0,0 +1,34 @@
+package cc.whohow.markup.impl;
+
+import io.netty.handler.codec.DateFormatter;
+import io.netty.util.AsciiString;
+
+import java.util.Date;
+
+/**
+ * HTTP Date 响应头，按秒缓存
+ */
+public class HttpDate {
+    private static volatile HttpDate current = new HttpDate(System.currentTimeMillis() / 1000);
+
+    private final long second;
+    private final AsciiString value;
+
+    private HttpDate(long second) {
+        this.second = second;
+        this.value = AsciiString.cached(DateFormatter.format(new Date(second * 1000)));
+    }
+
+    /**
+     * 当前时间
+     */
+    public static AsciiString now() {
+        long second = System.currentTimeMillis() / 1000;
+        HttpDate date = current;
+        if (date.second != second) {
+            date = new HttpDate(second);
+            current = date;
+        }
+        return date.value;
+    }
+}
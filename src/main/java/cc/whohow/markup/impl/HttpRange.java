@@ -0,0 +1,135 @@
+package cc.whohow.markup.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * HTTP Range 请求区间（闭区间）
+ */
+public class HttpRange {
+    /**
+     * 最大区间数，超出则忽略Range请求
+     */
+    public static final int MAX_RANGES = 16;
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long start;
+    private final long end;
+
+    public HttpRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * 解析Range请求头，区间按起始位置排序，重叠、相邻的区间合并
+     *
+     * @return null：忽略Range请求（无效、不支持或区间总长度超过文件大小）；空列表：无法满足的区间
+     */
+    public static List<HttpRange> parse(String range, long size) {
+        if (range == null || !range.startsWith(BYTES_UNIT)) {
+            return null;
+        }
+        String[] specs = range.substring(BYTES_UNIT.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<HttpRange> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                if (first.isEmpty()) {
+                    // 后缀区间：bytes=-N
+                    if (last.isEmpty()) {
+                        return null;
+                    }
+                    long suffix = Long.parseLong(last);
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    if (suffix > 0 && size > 0) {
+                        ranges.add(new HttpRange(Long.max(size - suffix, 0), size - 1));
+                    }
+                } else {
+                    long start = Long.parseLong(first);
+                    long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    if (start < size) {
+                        ranges.add(new HttpRange(start, Long.min(end, size - 1)));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        if (ranges.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // 区间总长度超过文件大小（重复、重叠区间放大响应），按完整响应处理
+        long length = 0;
+        for (HttpRange r : ranges) {
+            length += r.getLength();
+        }
+        if (length > size) {
+            return null;
+        }
+        return coalesce(ranges);
+    }
+
+    /**
+     * 排序并合并重叠、相邻的区间
+     */
+    private static List<HttpRange> coalesce(List<HttpRange> ranges) {
+        if (ranges.size() == 1) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(HttpRange::getStart));
+        List<HttpRange> result = new ArrayList<>(ranges.size());
+        HttpRange last = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            HttpRange range = ranges.get(i);
+            if (range.start <= last.end + 1) {
+                last = new HttpRange(last.start, Long.max(last.end, range.end));
+            } else {
+                result.add(last);
+                last = range;
+            }
+        }
+        result.add(last);
+        return result;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    /**
+     * Content-Range 响应头
+     */
+    public String toContentRange(long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+
+    @Override
+    public String toString() {
+        return start + "-" + end;
+    }
+}
@@ -0,0 +1,17 @@
+package cc.whohow.markup.impl;
+
+/**
+ * JFR 支持检测，运行环境没有 jdk.jfr（JDK 8u262 以前）时不创建事件
+ */
+public class Jfr {
+    public static final boolean AVAILABLE = isAvailable();
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package cc.whohow.markup.impl;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图（微秒），记录无锁，读取时合并区间数据
+ */
+public class LatencyHistogram {
+    private static final long HIGHEST_TRACKABLE_VALUE = TimeUnit.MINUTES.toMicros(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+    private final LongAdder sum = new LongAdder();
+    // 累计数据，仅在读取时访问
+    private final Histogram accumulated = new Histogram(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+    private Histogram interval;
+
+    /**
+     * @param latency 耗时，微秒
+     */
+    public void record(long latency) {
+        recorder.recordValue(Long.min(Long.max(latency, 0), HIGHEST_TRACKABLE_VALUE));
+        sum.add(latency);
+    }
+
+    /**
+     * 累计耗时，微秒
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * 累计直方图快照
+     */
+    public synchronized Histogram snapshot() {
+        interval = recorder.getIntervalHistogram(interval);
+        accumulated.add(interval);
+        return accumulated.copy();
+    }
+}
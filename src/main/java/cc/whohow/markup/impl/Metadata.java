@@ -1,5 +1,9 @@
 package cc.whohow.markup.impl;
 
+import io.netty.handler.codec.DateFormatter;
+import io.netty.util.AsciiString;
+import org.eclipse.jgit.lib.ObjectId;
+
 import java.util.Date;
 
 /**
@@ -14,11 +18,18 @@ public class Metadata {
     private long size;
     private Date lastModified;
     private String contentType;
+    private ObjectId objectId;
+    private AsciiString httpLastModified;
 
     public Metadata(long size, Date lastModified, String contentType) {
+        this(size, lastModified, contentType, null);
+    }
+
+    public Metadata(long size, Date lastModified, String contentType, ObjectId objectId) {
         this.size = size;
         this.lastModified = lastModified;
         this.contentType = contentType;
+        this.objectId = objectId;
     }
 
     public long getSize() {
@@ -32,4 +43,23 @@ public class Metadata {
     public String getContentType() {
         return contentType;
     }
+
+    /**
+     * Last-Modified 响应头（HTTP日期格式），首次使用时生成
+     */
+    public AsciiString getHttpLastModified() {
+        AsciiString value = httpLastModified;
+        if (value == null) {
+            value = AsciiString.of(DateFormatter.format(lastModified));
+            httpLastModified = value;
+        }
+        return value;
+    }
+
+    /**
+     * Git blobId，非版本库文件为null
+     */
+    public ObjectId getObjectId() {
+        return objectId;
+    }
 }
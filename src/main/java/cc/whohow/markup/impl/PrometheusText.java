@@ -0,0 +1,117 @@
+package cc.whohow.markup.impl;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prometheus 文本格式（0.0.4），同名指标的样本按指标分组输出
+ */
+public class PrometheusText {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double MICROS_PER_SECOND = 1_000_000.0;
+
+    private final Map<String, StringBuilder> metrics = new LinkedHashMap<>();
+    private StringBuilder buffer;
+
+    /**
+     * 指标说明及类型，重复声明时忽略
+     */
+    public PrometheusText metric(String name, String type, String help) {
+        metrics.computeIfAbsent(name, key -> new StringBuilder(256)
+                .append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(' ').append(type).append('\n'));
+        return this;
+    }
+
+    /**
+     * @param labels 标签名、标签值交替排列
+     */
+    public PrometheusText sample(String name, long value, String... labels) {
+        appendName(name, labels);
+        buffer.append(value).append('\n');
+        return this;
+    }
+
+    /**
+     * @param labels 标签名、标签值交替排列
+     */
+    public PrometheusText sample(String name, double value, String... labels) {
+        appendName(name, labels);
+        buffer.append(value).append('\n');
+        return this;
+    }
+
+    /**
+     * 延迟摘要（秒）：分位数、总和、次数
+     */
+    public PrometheusText summary(String name, LatencyHistogram latency, String... labels) {
+        Histogram histogram = latency.snapshot();
+        String[] quantileLabels = new String[labels.length + 2];
+        System.arraycopy(labels, 0, quantileLabels, 0, labels.length);
+        quantileLabels[labels.length] = "quantile";
+        for (double quantile : QUANTILES) {
+            quantileLabels[labels.length + 1] = Double.toString(quantile);
+            sample(name, histogram.getValueAtPercentile(quantile * 100) / MICROS_PER_SECOND, quantileLabels);
+        }
+        sample(name + "_sum", latency.getSum() / MICROS_PER_SECOND, labels);
+        sample(name + "_count", histogram.getTotalCount(), labels);
+        return this;
+    }
+
+    private void appendName(String name, String... labels) {
+        buffer = metrics.get(name);
+        int suffix = name.lastIndexOf('_');
+        if (buffer == null && suffix > 0) {
+            // 摘要的 _sum、_count 样本
+            buffer = metrics.get(name.substring(0, suffix));
+        }
+        if (buffer == null) {
+            throw new IllegalStateException(name);
+        }
+        buffer.append(name);
+        if (labels.length > 0) {
+            buffer.append('{');
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                buffer.append(labels[i]).append("=\"");
+                appendEscaped(labels[i + 1]);
+                buffer.append('"');
+            }
+            buffer.append('}');
+        }
+        buffer.append(' ');
+    }
+
+    private void appendEscaped(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    buffer.append("\\\\");
+                    break;
+                case '"':
+                    buffer.append("\\\"");
+                    break;
+                case '\n':
+                    buffer.append("\\n");
+                    break;
+                default:
+                    buffer.append(c);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(4096);
+        for (StringBuilder metric : metrics.values()) {
+            text.append(metric);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,19 @@
+package cc.whohow.markup.impl;
+
+import jdk.jfr.*;
+
+/**
+ * JFR事件：提交后重新打开IndexReader
+ */
+@Name("cc.whohow.markup.Reopen")
+@Label("Index Reopen")
+@Category("Markup")
+@StackTrace(false)
+public class ReopenEvent extends Event {
+    @Label("Changed")
+    public boolean changed;
+    @Label("Docs")
+    public int docs;
+    @Label("Segments")
+    public int segments;
+}
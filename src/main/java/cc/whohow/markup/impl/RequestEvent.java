@@ -0,0 +1,33 @@
+package cc.whohow.markup.impl;
+
+import jdk.jfr.*;
+
+/**
+ * JFR事件：HTTP请求（收到请求至响应写完）
+ */
+@Name("cc.whohow.markup.Request")
+@Label("HTTP Request")
+@Category("Markup")
+@StackTrace(false)
+public class RequestEvent extends Event {
+    private static final RequestEvent PROBE = new RequestEvent();
+
+    @Label("Route")
+    public String route;
+    @Label("Method")
+    public String method;
+    @Label("Path")
+    public String path;
+    @Label("Status")
+    public int status;
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    /**
+     * 是否正在记录，不创建事件对象
+     */
+    public static boolean isRecording() {
+        return PROBE.isEnabled();
+    }
+}
@@ -0,0 +1,42 @@
+package cc.whohow.markup.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按路由统计请求延迟
+ */
+public class RequestMetrics {
+    public static final String SEARCH = "search";
+    public static final String TABLE_OF_CONTENT = "toc";
+    public static final String SUGGEST = "suggest";
+    public static final String UPDATE = "updater";
+    public static final String STATIC = "static";
+
+    private final Map<String, LatencyHistogram> latency = new LinkedHashMap<>();
+
+    public RequestMetrics() {
+        latency.put(SEARCH, new LatencyHistogram());
+        latency.put(TABLE_OF_CONTENT, new LatencyHistogram());
+        latency.put(SUGGEST, new LatencyHistogram());
+        latency.put(UPDATE, new LatencyHistogram());
+        latency.put(STATIC, new LatencyHistogram());
+    }
+
+    /**
+     * @param route   路由，未知路由忽略
+     * @param latency 耗时，微秒
+     */
+    public void record(String route, long latency) {
+        if (route != null) {
+            this.latency.get(route).record(latency);
+        }
+    }
+
+    public void write(PrometheusText text) {
+        text.metric("markup_request_duration_seconds", "summary", "Request latency by route.");
+        for (Map.Entry<String, LatencyHistogram> e : latency.entrySet()) {
+            text.summary("markup_request_duration_seconds", e.getValue(), "route", e.getKey());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package cc.whohow.markup.impl;
+
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 排序TopDocs及目录分面统计收集：每个切片一组收集器（有查询线程池时各切片并行收集），结束后合并
+ */
+public class SearchCollectorManager implements CollectorManager<Collector, TopFieldDocs> {
+    private final Sort sort;
+    private final int numHits;
+    private final boolean trackTotalHits;
+    private final String facetField;
+    private final int facetDepth;
+    // 按切片顺序
+    private final List<TopFieldCollector> topDocsCollectors = new ArrayList<>();
+    private final List<DirectoryFacetCollector> facetCollectors = new ArrayList<>();
+
+    /**
+     * @param trackTotalHits 是否统计总命中数，与索引排序一致且不统计时各段收集够numHits个后提前结束
+     * @param facetField     目录分面统计字段，null表示不统计
+     * @param facetDepth     目录分面统计层级
+     */
+    public SearchCollectorManager(Sort sort, int numHits, boolean trackTotalHits, String facetField, int facetDepth) {
+        this.sort = sort;
+        this.numHits = numHits;
+        this.trackTotalHits = trackTotalHits;
+        this.facetField = facetField;
+        this.facetDepth = facetDepth;
+    }
+
+    @Override
+    public Collector newCollector() throws IOException {
+        TopFieldCollector topDocsCollector = TopFieldCollector.create(sort, numHits, true, false, false, trackTotalHits);
+        topDocsCollectors.add(topDocsCollector);
+        if (facetField == null) {
+            return topDocsCollector;
+        }
+        DirectoryFacetCollector facetCollector = new DirectoryFacetCollector(facetField, facetDepth);
+        facetCollectors.add(facetCollector);
+        return MultiCollector.wrap(topDocsCollector, facetCollector);
+    }
+
+    @Override
+    public TopFieldDocs reduce(Collection<Collector> collectors) throws IOException {
+        if (topDocsCollectors.size() == 1) {
+            return topDocsCollectors.get(0).topDocs();
+        }
+        TopFieldDocs[] topDocs = new TopFieldDocs[topDocsCollectors.size()];
+        for (int i = 0; i < topDocs.length; i++) {
+            topDocs[i] = topDocsCollectors.get(i).topDocs();
+        }
+        // 相同排序值按切片顺序（切片按段顺序划分，即按文档号）
+        return TopDocs.merge(sort, numHits, topDocs);
+    }
+
+    /**
+     * 合并各切片的目录分面统计，不统计时返回null
+     */
+    public Map<String, Integer> getFacets() throws IOException {
+        if (facetField == null) {
+            return null;
+        }
+        if (facetCollectors.size() == 1) {
+            return facetCollectors.get(0).getCounts();
+        }
+        Map<String, Integer> counts = new TreeMap<>();
+        for (DirectoryFacetCollector facetCollector : facetCollectors) {
+            facetCollector.getCounts().forEach((directory, count) -> counts.merge(directory, count, Integer::sum));
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+}
@@ -7,11 +7,22 @@ import java.util.Base64;
  * 搜索分页标识符
  */
 public class SearchCursor {
+    public static final String SORT_RELEVANCE = "relevance";
+    public static final String SORT_CREATED = "created";
+    public static final String SORT_MODIFIED = "modified";
+    public static final String SORT_KEY = "key";
+
     private String prefix;
     private String keyword;
     private int count;
     private int offset;
     private String key;
+    private String sort;
+    // 时间范围（毫秒），[from, to)，null表示不限
+    private Long createdFrom;
+    private Long createdTo;
+    private Long modifiedFrom;
+    private Long modifiedTo;
 
     public SearchCursor() {
     }
@@ -24,6 +35,28 @@ public class SearchCursor {
         this.count = Integer.parseInt(parts[2].substring(2));
         this.offset = Integer.parseInt(parts[3].substring(2));
         this.key = parts[4].substring(2);
+        // 兼容旧版本游标
+        if (parts.length > 7) {
+            this.sort = emptyToNull(parts[5].substring(2));
+            String[] created = parts[6].substring(2).split(",", -1);
+            this.createdFrom = parseLong(created[0]);
+            this.createdTo = parseLong(created[1]);
+            String[] modified = parts[7].substring(2).split(",", -1);
+            this.modifiedFrom = parseLong(modified[0]);
+            this.modifiedTo = parseLong(modified[1]);
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Long parseLong(String value) {
+        return value.isEmpty() ? null : Long.parseLong(value);
+    }
+
+    private static String toString(Long value) {
+        return value == null ? "" : value.toString();
     }
 
     private String join() {
@@ -31,7 +64,10 @@ public class SearchCursor {
                 "q=" + (keyword == null ? "" : keyword) + "\n" +
                 "n=" + (count) + "\n" +
                 "o=" + (offset) + "\n" +
-                "k=" + (key == null ? "" : key);
+                "k=" + (key == null ? "" : key) + "\n" +
+                "s=" + (sort == null ? "" : sort) + "\n" +
+                "c=" + toString(createdFrom) + "," + toString(createdTo) + "\n" +
+                "m=" + toString(modifiedFrom) + "," + toString(modifiedTo);
     }
 
     public String getPrefix() {
@@ -74,6 +110,49 @@ public class SearchCursor {
         this.key = key;
     }
 
+    /**
+     * 排序：relevance、created、modified、key，null时有关键词按相关性，无关键词按创建时间
+     */
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public Long getCreatedFrom() {
+        return createdFrom;
+    }
+
+    public void setCreatedFrom(Long createdFrom) {
+        this.createdFrom = createdFrom;
+    }
+
+    public Long getCreatedTo() {
+        return createdTo;
+    }
+
+    public void setCreatedTo(Long createdTo) {
+        this.createdTo = createdTo;
+    }
+
+    public Long getModifiedFrom() {
+        return modifiedFrom;
+    }
+
+    public void setModifiedFrom(Long modifiedFrom) {
+        this.modifiedFrom = modifiedFrom;
+    }
+
+    public Long getModifiedTo() {
+        return modifiedTo;
+    }
+
+    public void setModifiedTo(Long modifiedTo) {
+        this.modifiedTo = modifiedTo;
+    }
+
     @Override
     public String toString() {
         return Base64.getUrlEncoder().encodeToString(
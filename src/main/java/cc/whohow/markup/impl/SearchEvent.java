@@ -0,0 +1,24 @@
+package cc.whohow.markup.impl;
+
+import jdk.jfr.*;
+
+/**
+ * JFR事件：搜索
+ */
+@Name("cc.whohow.markup.Search")
+@Label("Search")
+@Category("Markup")
+public class SearchEvent extends Event {
+    @Label("Query")
+    public String query;
+    @Label("Hits")
+    public long hits;
+    @Label("Returned")
+    public int returned;
+    @Label("Collection Time")
+    @Timespan
+    public long collectionTime;
+    @Label("Stored Field Load Time")
+    @Timespan
+    public long loadTime;
+}
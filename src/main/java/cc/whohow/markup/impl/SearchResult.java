@@ -1,6 +1,7 @@
 package cc.whohow.markup.impl;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 搜索结果
@@ -8,6 +9,7 @@ import java.util.List;
 public class SearchResult<T> {
     private List<T> list;
     private String cursor;
+    private Map<String, Integer> facets;
 
     public List<T> getList() {
         return list;
@@ -25,6 +27,17 @@ public class SearchResult<T> {
         this.cursor = cursor;
     }
 
+    /**
+     * 目录分面统计：目录 -> 命中数，未请求时为null
+     */
+    public Map<String, Integer> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, Integer> facets) {
+        this.facets = facets;
+    }
+
     @Override
     public String toString() {
         return list + cursor;
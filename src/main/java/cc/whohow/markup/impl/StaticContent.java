@@ -0,0 +1,124 @@
+package cc.whohow.markup.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.*;
+import io.netty.util.AsciiString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 预编码静态文件，内容保存在只读直接内存中
+ */
+public class StaticContent {
+    private static final CharSequence CACHE_CONTROL_VALUE = AsciiString.cached("no-cache,max-age=86400,must-revalidate");
+    private static final AsciiString LINK = AsciiString.cached("link");
+    private static final HttpResponseStatus EARLY_HINTS = new HttpResponseStatus(103, "Early Hints");
+
+    private final Metadata metadata;
+    private final CharSequence link;
+    private final ByteBuf content;
+    private final HttpHeaders headers;
+    private final ByteBuf gzipContent;
+    private final HttpHeaders gzipHeaders;
+
+    public StaticContent(byte[] bytes, Metadata metadata) throws IOException {
+        this(bytes, metadata, null);
+    }
+
+    /**
+     * @param link 预加载资源（Link响应头），可为null
+     */
+    public StaticContent(byte[] bytes, Metadata metadata, String link) throws IOException {
+        this.metadata = metadata;
+        this.link = (link == null) ? null : AsciiString.of(link);
+        this.content = toDirectBuffer(bytes);
+        this.headers = newHeaders(bytes.length);
+        byte[] gzip = gzip(bytes);
+        if (gzip.length < bytes.length) {
+            this.gzipContent = toDirectBuffer(gzip);
+            this.gzipHeaders = newHeaders(gzip.length)
+                    .set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP)
+                    .set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+            this.headers.set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        } else {
+            this.gzipContent = null;
+            this.gzipHeaders = null;
+        }
+    }
+
+    private static ByteBuf toDirectBuffer(byte[] bytes) {
+        return Unpooled.directBuffer(bytes.length, bytes.length)
+                .writeBytes(bytes)
+                .asReadOnly();
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length);
+        try (GZIPOutputStream stream = new GZIPOutputStream(buffer)) {
+            stream.write(bytes);
+        }
+        return buffer.toByteArray();
+    }
+
+    private HttpHeaders newHeaders(int contentLength) {
+        HttpHeaders headers = new DefaultHttpHeaders(false)
+                .set(HttpHeaderNames.CONTENT_LENGTH, AsciiString.of(Integer.toString(contentLength)))
+                .set(HttpHeaderNames.LAST_MODIFIED, AsciiString.of(DateFormatter.format(metadata.getLastModified())))
+                .set(HttpHeaderNames.CACHE_CONTROL, CACHE_CONTROL_VALUE);
+        if (metadata.getContentType() != null) {
+            headers.set(HttpHeaderNames.CONTENT_TYPE, AsciiString.of(metadata.getContentType()));
+        }
+        if (link != null) {
+            headers.set(LINK, link);
+        }
+        return headers;
+    }
+
+    public Metadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * 预加载资源，可为null
+     */
+    public CharSequence getLink() {
+        return link;
+    }
+
+    /**
+     * 103 Early Hints
+     */
+    public HttpResponse newEarlyHints() {
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, EARLY_HINTS);
+        response.headers().set(LINK, link);
+        return response;
+    }
+
+    /**
+     * 是否有gzip压缩版本
+     */
+    public boolean hasGzip() {
+        return gzipContent != null;
+    }
+
+    /**
+     * 响应头，每次请求复制预编码头（下游Handler可能修改响应头）
+     */
+    public HttpResponse newResponse(boolean gzip) {
+        HttpHeaders responseHeaders = new DefaultHttpHeaders(false)
+                .add(gzip && hasGzip() ? gzipHeaders : headers)
+                .set(HttpHeaderNames.DATE, HttpDate.now());
+        return new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, responseHeaders);
+    }
+
+    /**
+     * 响应内容，共享底层内存，无复制
+     */
+    public ByteBuf newContent(boolean gzip) {
+        return (gzip && hasGzip() ? gzipContent : content).retainedDuplicate();
+    }
+}
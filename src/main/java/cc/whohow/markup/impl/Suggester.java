@@ -0,0 +1,313 @@
+package cc.whohow.markup.impl;
+
+import com.hankcs.hanlp.HanLP;
+import com.hankcs.hanlp.dictionary.py.PinyinDictionary;
+import com.hankcs.hanlp.seg.common.Term;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.MSBRadixSorter;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入提示：标题、文件路径前缀匹配（FST），每次提交（重新打开索引）时由正向索引构建
+ * <p>
+ * 标题按分词拆成从各个词开始的后缀（词首中缀匹配），每个后缀再展开为全拼、首字母，统一转小写。
+ * 词条 + '\0' + 提示项序号 作为FST输入（同一词条可对应多个文件），输出为权重（修改时间）取反，
+ * 查询时沿输入前缀走到节点后取最小输出的N条路径
+ */
+public class Suggester {
+    /**
+     * 空提示
+     */
+    public static final Suggester EMPTY = new Suggester(null, Collections.emptyMap(), new Suggestion[0], 0);
+
+    /**
+     * 标题参与提示的最大长度
+     */
+    private static final int MAX_TITLE_LENGTH = 128;
+    /**
+     * 每个标题最多的词首后缀数
+     */
+    private static final int MAX_SUFFIXES = 8;
+    /**
+     * 同一文档可能由多个词条命中（重复的文档跳过），搜索队列初始大小为N的倍数，不够时加倍重新搜索
+     */
+    private static final int OVERSAMPLE = 4;
+    /**
+     * 词条与序号的分隔符
+     */
+    private static final int SEPARATOR = 0;
+    /**
+     * 序号字节数
+     */
+    private static final int ORDINAL_BYTES = 4;
+    /**
+     * 后缀共享的最大长度（字节）
+     */
+    private static final int SHARE_MAX_TAIL_LENGTH = 32;
+
+    private final FST<Long> fst;
+    /**
+     * 文件路径 -> 提示项，下次构建时复用未修改标题的展开结果
+     */
+    private final Map<String, Suggestion> suggestions;
+    /**
+     * 序号 -> 提示项
+     */
+    private final Suggestion[] ordinals;
+    private final long size;
+
+    private Suggester(FST<Long> fst, Map<String, Suggestion> suggestions, Suggestion[] ordinals, long size) {
+        this.fst = fst;
+        this.suggestions = suggestions;
+        this.ordinals = ordinals;
+        this.size = size;
+    }
+
+    /**
+     * 读取正向索引（忽略已删除文档）构建提示
+     *
+     * @param weightField 权重字段（修改时间，毫秒）
+     * @param previous    上次构建的提示，标题未修改的文档复用展开结果
+     */
+    public static Suggester build(IndexReader reader, String keyField, String titleField, String weightField,
+                                  Suggester previous) throws IOException {
+        List<Suggestion> list = new ArrayList<>(reader.numDocs());
+        Map<String, Suggestion> suggestions = new HashMap<>();
+        int size = 0;
+        for (LeafReaderContext leaf : reader.leaves()) {
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            SortedDocValues keys = DocValues.getSorted(leaf.reader(), keyField);
+            SortedDocValues titles = DocValues.getSorted(leaf.reader(), titleField);
+            NumericDocValues weights = DocValues.getNumeric(leaf.reader(), weightField);
+            for (int doc = keys.nextDoc(); doc != SortedDocValues.NO_MORE_DOCS; doc = keys.nextDoc()) {
+                if (liveDocs != null && !liveDocs.get(doc)) {
+                    continue;
+                }
+                String key = keys.binaryValue().utf8ToString();
+                String title = titles.advanceExact(doc) ? titles.binaryValue().utf8ToString() : "";
+                Suggestion suggestion = previous.suggestions.get(key);
+                if (suggestion == null || !suggestion.title.equals(title)) {
+                    suggestion = new Suggestion(key, title, expand(key, title));
+                }
+                // 修改时间（分钟）取反，越新越小
+                long modified = weights.advanceExact(doc) ? TimeUnit.MILLISECONDS.toMinutes(weights.longValue()) : 0;
+                suggestion.cost = Integer.MAX_VALUE - Long.min(Long.max(modified, 0), Integer.MAX_VALUE);
+                list.add(suggestion);
+                suggestions.put(key, suggestion);
+                size += suggestion.inputs.length;
+            }
+        }
+        if (list.isEmpty()) {
+            return EMPTY;
+        }
+
+        // 内存排序（MSB基数排序），FST输入需按字节序添加
+        Suggestion[] ordinals = list.toArray(new Suggestion[0]);
+        BytesRef[] entries = new BytesRef[size];
+        int i = 0;
+        for (int ordinal = 0; ordinal < ordinals.length; ordinal++) {
+            for (byte[] input : ordinals[ordinal].inputs) {
+                byte[] entry = Arrays.copyOf(input, input.length + 1 + ORDINAL_BYTES);
+                entry[input.length] = SEPARATOR;
+                for (int b = 0; b < ORDINAL_BYTES; b++) {
+                    entry[input.length + 1 + b] = (byte) (ordinal >>> (8 * (ORDINAL_BYTES - 1 - b)));
+                }
+                entries[i++] = new BytesRef(entry);
+            }
+        }
+        new MSBRadixSorter(Integer.MAX_VALUE) {
+            @Override
+            protected int byteAt(int i, int k) {
+                return (k < entries[i].length) ? entries[i].bytes[k] & 0xFF : -1;
+            }
+
+            @Override
+            protected void swap(int i, int j) {
+                BytesRef tmp = entries[i];
+                entries[i] = entries[j];
+                entries[j] = tmp;
+            }
+        }.sort(0, entries.length);
+
+        // 同一文件的标题词首后缀互为后缀（序号相同），共享后缀；限制共享长度以控制构建时间
+        Builder<Long> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, 0, 0, true, true, SHARE_MAX_TAIL_LENGTH,
+                PositiveIntOutputs.getSingleton(), true, 15);
+        IntsRefBuilder scratch = new IntsRefBuilder();
+        for (int j = 0; j < entries.length; j++) {
+            IntsRef input = Util.toIntsRef(entries[j], scratch);
+            builder.add(input, ordinals[toOrdinal(input.ints, input.length)].cost);
+            // 已添加的输入不再需要，构建时新旧FST同时在内存中
+            entries[j] = null;
+        }
+        return new Suggester(builder.finish(), suggestions, ordinals, size);
+    }
+
+    /**
+     * 展开词条（UTF-8）：文件路径、文件名、标题词首后缀及其全拼、首字母
+     */
+    private static byte[][] expand(String key, String title) {
+        Set<String> inputs = new LinkedHashSet<>();
+        inputs.add(normalize(key));
+        inputs.add(normalize(key.substring(key.lastIndexOf('/') + 1)));
+        if (title.length() > MAX_TITLE_LENGTH) {
+            title = title.substring(0, MAX_TITLE_LENGTH);
+        }
+        if (!title.isEmpty()) {
+            HanLPPinyinConverter[] converters = {
+                    new HanLPPinyinConverter.ToPinyinString(),
+                    new HanLPPinyinConverter.ToPinyinFirstCharString()
+            };
+            List<Integer> offsets = new ArrayList<>();
+            List<String[]> pinyin = new ArrayList<>();
+            int offset = 0;
+            for (Term term : HanLP.segment(title)) {
+                int start = title.indexOf(term.word, offset);
+                if (start < 0) {
+                    break;
+                }
+                offset = start + term.word.length();
+                if (!Character.isLetterOrDigit(term.word.charAt(0))) {
+                    continue;
+                }
+                String[] converted = new String[converters.length];
+                for (int i = 0; i < converters.length; i++) {
+                    CharSequence s = converters[i].convert(term.word, PinyinDictionary.convertToPinyin(term.word));
+                    // 非中文词保留原词
+                    converted[i] = (s.length() == 0) ? term.word : s.toString();
+                }
+                offsets.add(start);
+                pinyin.add(converted);
+            }
+            for (int i = 0; i < offsets.size() && i < MAX_SUFFIXES; i++) {
+                inputs.add(normalize(title.substring(offsets.get(i))));
+                for (int c = 0; c < converters.length; c++) {
+                    StringBuilder buffer = new StringBuilder();
+                    for (int j = i; j < pinyin.size(); j++) {
+                        buffer.append(pinyin.get(j)[c]);
+                    }
+                    inputs.add(normalize(buffer.toString()));
+                }
+            }
+        }
+        inputs.remove("");
+        return inputs.stream()
+                .map(input -> input.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+    }
+
+    /**
+     * 转小写，去掉分隔符
+     */
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT).replace("\0", "");
+    }
+
+    /**
+     * 前缀匹配，按修改时间倒序，每个文件只返回一次
+     */
+    public List<Suggestion> lookup(String text, int n) throws IOException {
+        if (fst == null || text == null || n <= 0) {
+            return Collections.emptyList();
+        }
+        byte[] prefix = normalize(text).trim().getBytes(StandardCharsets.UTF_8);
+        if (prefix.length == 0) {
+            return Collections.emptyList();
+        }
+        FST.BytesReader reader = fst.getBytesReader();
+        FST.Arc<Long> arc = fst.getFirstArc(new FST.Arc<>());
+        Long output = fst.outputs.getNoOutput();
+        for (byte b : prefix) {
+            if (fst.findTargetArc(b & 0xFF, arc, arc, reader) == null) {
+                return Collections.emptyList();
+            }
+            output = fst.outputs.add(output, arc.output);
+        }
+        for (int maxQueueDepth = n * OVERSAMPLE; ; maxQueueDepth *= 2) {
+            Map<String, Suggestion> result = new LinkedHashMap<>();
+            Util.TopNSearcher<Long> searcher = new Util.TopNSearcher<Long>(fst, n, maxQueueDepth, Comparator.naturalOrder()) {
+                @Override
+                protected boolean acceptResult(IntsRef input, Long output) {
+                    // 同一文件已由更优的词条命中，跳过，不计入N条
+                    Suggestion suggestion = ordinals[toOrdinal(input.ints, input.offset + input.length)];
+                    return result.putIfAbsent(suggestion.key, suggestion) == null;
+                }
+            };
+            searcher.addStartPaths(arc, output, false, new IntsRefBuilder());
+            // 找到N个文件，或搜索队列未截断（已遍历全部匹配的词条）
+            if (searcher.search().isComplete || result.size() == n) {
+                return new ArrayList<>(result.values());
+            }
+        }
+    }
+
+    /**
+     * 提示词条数
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * FST内存占用
+     */
+    public long ramBytesUsed() {
+        return (fst == null) ? 0 : fst.ramBytesUsed();
+    }
+
+    /**
+     * 输入末尾的提示项序号
+     */
+    private static int toOrdinal(int[] input, int end) {
+        int ordinal = 0;
+        for (int i = end - ORDINAL_BYTES; i < end; i++) {
+            ordinal = (ordinal << 8) | input[i];
+        }
+        return ordinal;
+    }
+
+    /**
+     * 提示项
+     */
+    public static class Suggestion {
+        private final String key;
+        private final String title;
+        private final byte[][] inputs;
+        private long cost;
+
+        Suggestion(String key, String title, byte[][] inputs) {
+            this.key = key;
+            this.title = title;
+            this.inputs = inputs;
+        }
+
+        /**
+         * 文件路径
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * 标题（第一个标题行，没有时为文件名）
+         */
+        public String getTitle() {
+            return title;
+        }
+    }
+}
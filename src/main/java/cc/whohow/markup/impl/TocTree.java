@@ -0,0 +1,137 @@
+package cc.whohow.markup.impl;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.util.Bits;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 目录树，每次提交（重新打开索引）时由文件路径正向索引构建，按目录读取直接子节点
+ */
+public class TocTree {
+    /**
+     * 空目录树
+     */
+    public static final TocTree EMPTY = new TocTree(Collections.emptyNavigableSet(),
+            Collections.singletonMap("", Collections.emptyList()));
+
+    /**
+     * 全部文件路径，有序
+     */
+    private final NavigableSet<String> keys;
+    /**
+     * 目录（以/结尾，根目录为""） -> 直接子节点，按路径排序
+     */
+    private final Map<String, List<Entry>> directories;
+
+    private TocTree(NavigableSet<String> keys, Map<String, List<Entry>> directories) {
+        this.keys = keys;
+        this.directories = directories;
+    }
+
+    /**
+     * 读取正向索引（忽略已删除文档）构建目录树
+     */
+    public static TocTree build(IndexReader reader, String field) throws IOException {
+        NavigableSet<String> keys = new TreeSet<>();
+        for (LeafReaderContext leaf : reader.leaves()) {
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            SortedDocValues docValues = DocValues.getSorted(leaf.reader(), field);
+            for (int doc = docValues.nextDoc(); doc != SortedDocValues.NO_MORE_DOCS; doc = docValues.nextDoc()) {
+                if (liveDocs == null || liveDocs.get(doc)) {
+                    keys.add(docValues.binaryValue().utf8ToString());
+                }
+            }
+        }
+
+        Map<String, List<Entry>> directories = new HashMap<>();
+        Map<String, Entry> directoryEntries = new HashMap<>();
+        directories.put("", new ArrayList<>());
+        for (String key : keys) {
+            String parent = "";
+            for (int i = key.indexOf('/'); i >= 0; i = key.indexOf('/', i + 1)) {
+                String directory = key.substring(0, i + 1);
+                if (!directories.containsKey(directory)) {
+                    Entry entry = new Entry(key.substring(parent.length(), i), directory, true);
+                    directories.get(parent).add(entry);
+                    directories.put(directory, new ArrayList<>());
+                    directoryEntries.put(directory, entry);
+                }
+                directoryEntries.get(directory).files++;
+                parent = directory;
+            }
+            directories.get(parent).add(new Entry(key.substring(parent.length()), key, false));
+        }
+        for (Map.Entry<String, Entry> e : directoryEntries.entrySet()) {
+            e.getValue().children = directories.get(e.getKey()).size();
+        }
+        for (List<Entry> children : directories.values()) {
+            ((ArrayList<Entry>) children).trimToSize();
+        }
+        return new TocTree(Collections.unmodifiableNavigableSet(keys), directories);
+    }
+
+    public NavigableSet<String> keys() {
+        return keys;
+    }
+
+    /**
+     * 目录的直接子节点，目录不存在时返回null
+     *
+     * @param directory 目录，以/结尾，根目录为""
+     */
+    public List<Entry> getChildren(String directory) {
+        List<Entry> children = directories.get(directory);
+        return (children == null) ? null : Collections.unmodifiableList(children);
+    }
+
+    /**
+     * 目录树节点
+     */
+    public static class Entry {
+        private final String name;
+        private final String key;
+        private final boolean directory;
+        private int children;
+        private int files;
+
+        Entry(String name, String key, boolean directory) {
+            this.name = name;
+            this.key = key;
+            this.directory = directory;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 完整路径，目录以/结尾
+         */
+        public String getKey() {
+            return key;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        /**
+         * 直接子节点数，文件为null
+         */
+        public Integer getChildren() {
+            return directory ? children : null;
+        }
+
+        /**
+         * 目录下（包括子目录）文件数，文件为null
+         */
+        public Integer getFiles() {
+            return directory ? files : null;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package cc.whohow.markup.impl;
+
+/**
+ * 更新失败，附带本次更新的报告
+ */
+public class UpdateException extends Exception {
+    private final UpdateReport report;
+
+    public UpdateException(UpdateReport report, Throwable cause) {
+        super(cause);
+        this.report = report;
+    }
+
+    public UpdateReport getReport() {
+        return report;
+    }
+}
@@ -0,0 +1,125 @@
+package cc.whohow.markup.impl;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 更新报告：各阶段耗时（毫秒）及计数
+ */
+public class UpdateReport {
+    // 阶段
+    public static final String GIT_CLONE = "gitClone";
+    public static final String GIT_PULL = "gitPull";
+    public static final String SNAPSHOT = "snapshot";
+    public static final String INVALIDATE = "invalidate";
+    public static final String GIT_DIFF = "gitDiff";
+    public static final String READ_MARKDOWN = "readMarkdown";
+    public static final String RENDER = "render";
+    public static final String GET_CREATED = "getCreated";
+    public static final String UPDATE_DOCUMENT = "updateDocument";
+    public static final String ADD_DOCUMENTS = "addDocuments";
+    public static final String FORCE_MERGE = "forceMerge";
+    public static final String DELETE_DOCUMENT = "deleteDocument";
+    public static final String COMMIT = "commit";
+    public static final String REOPEN = "reopen";
+    public static final String BUILD_TOC = "buildToc";
+    // 计数
+    public static final String DIFF_ENTRIES = "diffEntries";
+    public static final String FILES_READ = "filesRead";
+    public static final String BYTES_READ = "bytesRead";
+    public static final String BYTES_RENDERED = "bytesRendered";
+    public static final String DOCS_INDEXED = "docsIndexed";
+    public static final String DOCS_DELETED = "docsDeleted";
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Date timestamp = new Date();
+    private final long start = System.nanoTime();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final Map<String, Long> counts = new LinkedHashMap<>();
+    private long duration = -1;
+    private String oldCommit;
+    private String newCommit;
+    private String error;
+
+    /**
+     * 累计阶段耗时
+     *
+     * @param nanos 耗时，纳秒
+     */
+    public void addPhase(String phase, long nanos) {
+        phases.merge(phase, nanos, Long::sum);
+    }
+
+    public void addCount(String name, long count) {
+        counts.merge(name, count, Long::sum);
+    }
+
+    /**
+     * 结束计时
+     */
+    public void finish() {
+        duration = System.nanoTime() - start;
+    }
+
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 总耗时，毫秒
+     */
+    public double getDuration() {
+        return toMillis(duration < 0 ? System.nanoTime() - start : duration);
+    }
+
+    /**
+     * 各阶段耗时，毫秒
+     */
+    public Map<String, Double> getPhases() {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> e : phases.entrySet()) {
+            millis.put(e.getKey(), toMillis(e.getValue()));
+        }
+        return millis;
+    }
+
+    public Map<String, Long> getCounts() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public String getOldCommit() {
+        return oldCommit;
+    }
+
+    public void setOldCommit(String oldCommit) {
+        this.oldCommit = oldCommit;
+    }
+
+    public String getNewCommit() {
+        return newCommit;
+    }
+
+    public void setNewCommit(String newCommit) {
+        this.newCommit = newCommit;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / NANOS_PER_MILLI * 1000) / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return oldCommit + ".." + newCommit + " " + getDuration() + "ms " + getPhases() + " " + counts;
+    }
+}
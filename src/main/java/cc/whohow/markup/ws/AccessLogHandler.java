@@ -0,0 +1,130 @@
+package cc.whohow.markup.ws;
+
+import cc.whohow.markup.impl.AccessLog;
+import cc.whohow.markup.impl.Jfr;
+import cc.whohow.markup.impl.RequestEvent;
+import cc.whohow.markup.impl.RequestMetrics;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.AttributeKey;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 访问日志：方法、路径、状态、字节数、缓存命中、耗时（收到请求至响应写完），同时按路由统计延迟
+ */
+public class AccessLogHandler extends ChannelDuplexHandler {
+    /**
+     * 缓存命中状态，由业务Handler在写响应前设置
+     */
+    public static final AttributeKey<String> CACHE = AttributeKey.valueOf("cache");
+
+    private final AccessLog accessLog;
+    private final RequestMetrics requestMetrics;
+    // 等待响应的请求（HTTP/1.1 pipelining）
+    private final Queue<Pending> pending = new ArrayDeque<>(2);
+
+    public AccessLogHandler(AccessLog accessLog, RequestMetrics requestMetrics) {
+        this.accessLog = accessLog;
+        this.requestMetrics = requestMetrics;
+    }
+
+    /**
+     * 统计路由，内部接口以外的路径均为静态文件
+     */
+    private static String getRoute(String uri) {
+        int end = uri.length();
+        for (int i = 0; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c == '?' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+        String path = uri.substring(0, end);
+        switch (path) {
+            case WebServiceHandler.SEARCH:
+                return RequestMetrics.SEARCH;
+            case WebServiceHandler.TABLE_OF_CONTENT:
+                return RequestMetrics.TABLE_OF_CONTENT;
+            case WebServiceHandler.SUGGEST:
+                return RequestMetrics.SUGGEST;
+            case WebServiceHandler.UPDATE:
+                return RequestMetrics.UPDATE;
+            default:
+                return path.startsWith("/.") ? null : RequestMetrics.STATIC;
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            Pending current = new Pending(getRoute(request.uri()), new AccessLog.Entry(request.method().name(), request.uri()));
+            if (Jfr.AVAILABLE && RequestEvent.isRecording()) {
+                // JFR记录中才创建事件
+                current.event = new RequestEvent();
+                current.event.route = current.route;
+                current.event.method = request.method().name();
+                current.event.path = request.uri();
+                current.event.begin();
+            }
+            pending.offer(current);
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        Pending current = pending.peek();
+        if (current != null) {
+            if (msg instanceof HttpResponse) {
+                HttpResponse response = (HttpResponse) msg;
+                if (response.status().codeClass() != HttpStatusClass.INFORMATIONAL) {
+                    current.entry.setStatus(response.status().code());
+                    current.entry.setBytes(HttpUtil.getContentLength(response, 0L));
+                    if (current.event != null) {
+                        current.event.status = response.status().code();
+                        current.event.bytes = HttpUtil.getContentLength(response, 0L);
+                    }
+                    current.entry.setCache(ctx.channel().attr(CACHE).getAndSet(null));
+                }
+            }
+            if (msg instanceof LastHttpContent) {
+                pending.poll();
+                promise = promise.unvoid();
+                promise.addListener((ChannelFutureListener) future -> {
+                    long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - current.start);
+                    current.entry.setLatency(latency);
+                    accessLog.offer(current.entry);
+                    requestMetrics.record(current.route, latency);
+                    if (current.event != null) {
+                        current.event.commit();
+                    }
+                });
+            }
+        }
+        ctx.write(msg, promise);
+    }
+
+    private static class Pending {
+        final long start = System.nanoTime();
+        final String route;
+        final AccessLog.Entry entry;
+        RequestEvent event;
+
+        Pending(String route, AccessLog.Entry entry) {
+            this.route = route;
+            this.entry = entry;
+        }
+    }
+}
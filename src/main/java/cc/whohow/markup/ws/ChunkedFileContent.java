@@ -0,0 +1,58 @@
+package cc.whohow.markup.ws;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedNioFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * 文件分块内容，用于不支持FileRegion（sendfile）的HTTP/2流，不输出LastHttpContent
+ */
+public class ChunkedFileContent implements ChunkedInput<HttpContent> {
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final ChunkedNioFile file;
+
+    public ChunkedFileContent(File file, long offset, long length) throws IOException {
+        this.file = new ChunkedNioFile(FileChannel.open(file.toPath()), offset, length, CHUNK_SIZE);
+    }
+
+    @Override
+    public boolean isEndOfInput() throws Exception {
+        return file.isEndOfInput();
+    }
+
+    @Override
+    public void close() throws Exception {
+        file.close();
+    }
+
+    @Override
+    @Deprecated
+    public HttpContent readChunk(ChannelHandlerContext context) throws Exception {
+        return readChunk(context.alloc());
+    }
+
+    @Override
+    public HttpContent readChunk(ByteBufAllocator allocator) throws Exception {
+        ByteBuf chunk = file.readChunk(allocator);
+        return chunk == null ? null : new DefaultHttpContent(chunk);
+    }
+
+    @Override
+    public long length() {
+        return file.length();
+    }
+
+    @Override
+    public long progress() {
+        return file.progress();
+    }
+}
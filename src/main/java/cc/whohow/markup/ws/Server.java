@@ -9,19 +9,18 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
 import com.google.common.base.Strings;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
+import org.apache.logging.log4j.LogManager;
 
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.util.Arrays;
-import java.util.Objects;
-import java.util.Scanner;
+import java.util.*;
 
 /**
  * 服务器
@@ -30,23 +29,32 @@ public class Server {
     private static final String CONFIGURATION_FILE = "markup.yml";
     private static final String MARKUP_GIT = "MARKUP_GIT";
     private static final String MARKUP_PORT = "MARKUP_PORT";
+    private static final String MARKUP_TRANSPORT = "MARKUP_TRANSPORT";
+    private static final String MARKUP_ACCEPTORS = "MARKUP_ACCEPTORS";
+    private static final String MARKUP_WORKER_THREADS = "MARKUP_WORKER_THREADS";
+    private static final String MARKUP_SEARCH_THREADS = "MARKUP_SEARCH_THREADS";
+    private static final String MARKUP_SEARCH_SLICE_DOCS = "MARKUP_SEARCH_SLICE_DOCS";
 
     public static void main(String[] args) throws Exception {
         MarkupConfiguration configuration = getConfiguration(args);
         Markup markup = new Markup(configuration);
         markup.update();
+        // 停止时写出剩余访问日志，再关闭日志系统（log4j2.xml中关闭了自带的shutdownHook）
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            ServerInitializer.ACCESS_LOG.close();
+            LogManager.shutdown();
+        }, "shutdown"));
 
-        EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+        ServerTransport transport = ServerTransport.of(configuration.getTransport());
+        int acceptors = getAcceptors(transport, configuration);
+        EventLoopGroup bossGroup = transport.newEventLoopGroup(acceptors);
+        EventLoopGroup workerGroup = transport.newEventLoopGroup(configuration.getWorkerThreads());
         try {
-            ServerBootstrap bootstrap = new ServerBootstrap();
-            bootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .handler(new LoggingHandler(LogLevel.DEBUG))
-                    .childHandler(new ServerInitializer(new WebServiceHandler(markup)));
-
-            Channel channel = bootstrap.bind(configuration.getPort()).sync().channel();
-            channel.closeFuture().sync();
+            List<Channel> channels = bind(transport, bossGroup, workerGroup,
+                    new WebServiceHandler(markup), configuration.getPort(), acceptors);
+            for (Channel channel : channels) {
+                channel.closeFuture().sync();
+            }
         } finally {
             bossGroup.shutdownGracefully();
             workerGroup.shutdownGracefully();
@@ -54,6 +62,41 @@ public class Server {
         }
     }
 
+    /**
+     * 监听端口，多个监听通道通过SO_REUSEPORT由内核分配连接
+     */
+    public static List<Channel> bind(ServerTransport transport,
+                                     EventLoopGroup bossGroup,
+                                     EventLoopGroup workerGroup,
+                                     ChannelHandler webServiceHandler,
+                                     int port,
+                                     int acceptors) throws InterruptedException {
+        ServerBootstrap bootstrap = new ServerBootstrap();
+        bootstrap.group(bossGroup, workerGroup)
+                .channel(transport.getServerChannelClass())
+                .handler(new LoggingHandler(LogLevel.DEBUG))
+                .childHandler(new ServerInitializer(webServiceHandler));
+        if (acceptors > 1) {
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
+
+        List<Channel> channels = new ArrayList<>(acceptors);
+        for (int i = 0; i < acceptors; i++) {
+            channels.add(bootstrap.bind(port).sync().channel());
+        }
+        return channels;
+    }
+
+    /**
+     * 监听通道数，不支持SO_REUSEPORT时为1
+     */
+    public static int getAcceptors(ServerTransport transport, MarkupConfiguration configuration) {
+        if (transport.isReusePortSupported()) {
+            return Integer.max(configuration.getAcceptors(), 1);
+        }
+        return 1;
+    }
+
     /**
      * 读取配置文件
      */
@@ -72,6 +115,8 @@ public class Server {
     private static MarkupConfiguration getDefaultConfiguration() {
         MarkupConfiguration markupConfiguration = new MarkupConfiguration();
         markupConfiguration.setPort(80);
+        markupConfiguration.setTransport("nio");
+        markupConfiguration.setAcceptors(1);
         return markupConfiguration;
     }
 
@@ -83,12 +128,30 @@ public class Server {
     private static MarkupConfiguration getEnvConfiguration() {
         String git = System.getenv(MARKUP_GIT);
         String port = System.getenv(MARKUP_PORT);
+        String transport = System.getenv(MARKUP_TRANSPORT);
+        String acceptors = System.getenv(MARKUP_ACCEPTORS);
+        String workerThreads = System.getenv(MARKUP_WORKER_THREADS);
+        String searchThreads = System.getenv(MARKUP_SEARCH_THREADS);
+        String searchSliceDocs = System.getenv(MARKUP_SEARCH_SLICE_DOCS);
 
         MarkupConfiguration markupConfiguration = new MarkupConfiguration();
         markupConfiguration.setGit(git);
         if (!Strings.isNullOrEmpty(port)) {
             markupConfiguration.setPort(Integer.parseInt(port));
         }
+        markupConfiguration.setTransport(transport);
+        if (!Strings.isNullOrEmpty(acceptors)) {
+            markupConfiguration.setAcceptors(Integer.parseInt(acceptors));
+        }
+        if (!Strings.isNullOrEmpty(workerThreads)) {
+            markupConfiguration.setWorkerThreads(Integer.parseInt(workerThreads));
+        }
+        if (!Strings.isNullOrEmpty(searchThreads)) {
+            markupConfiguration.setSearchThreads(Integer.parseInt(searchThreads));
+        }
+        if (!Strings.isNullOrEmpty(searchSliceDocs)) {
+            markupConfiguration.setSearchSliceDocs(Integer.parseInt(searchSliceDocs));
+        }
         return markupConfiguration;
     }
 
@@ -138,6 +201,36 @@ public class Server {
                 .filter(i -> i != 0)
                 .findFirst()
                 .orElse(0));
+        markupConfiguration.setTransport(Arrays.stream(configurations)
+                .filter(Objects::nonNull)
+                .map(MarkupConfiguration::getTransport)
+                .filter(string -> !Strings.isNullOrEmpty(string))
+                .findFirst()
+                .orElse(null));
+        markupConfiguration.setAcceptors(Arrays.stream(configurations)
+                .filter(Objects::nonNull)
+                .mapToInt(MarkupConfiguration::getAcceptors)
+                .filter(i -> i != 0)
+                .findFirst()
+                .orElse(0));
+        markupConfiguration.setWorkerThreads(Arrays.stream(configurations)
+                .filter(Objects::nonNull)
+                .mapToInt(MarkupConfiguration::getWorkerThreads)
+                .filter(i -> i != 0)
+                .findFirst()
+                .orElse(0));
+        markupConfiguration.setSearchThreads(Arrays.stream(configurations)
+                .filter(Objects::nonNull)
+                .mapToInt(MarkupConfiguration::getSearchThreads)
+                .filter(i -> i != 0)
+                .findFirst()
+                .orElse(0));
+        markupConfiguration.setSearchSliceDocs(Arrays.stream(configurations)
+                .filter(Objects::nonNull)
+                .mapToInt(MarkupConfiguration::getSearchSliceDocs)
+                .filter(i -> i != 0)
+                .findFirst()
+                .orElse(0));
         return markupConfiguration;
     }
 }
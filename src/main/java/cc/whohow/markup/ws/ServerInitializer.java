@@ -1,5 +1,8 @@
 package cc.whohow.markup.ws;
 
+import cc.whohow.markup.impl.AccessLog;
+import cc.whohow.markup.impl.RequestMetrics;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
@@ -7,30 +10,74 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.HttpServerKeepAliveHandler;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
 import io.netty.handler.codec.http.cors.CorsConfig;
 import io.netty.handler.codec.http.cors.CorsConfigBuilder;
 import io.netty.handler.codec.http.cors.CorsHandler;
+import io.netty.handler.codec.http2.*;
 import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.AsciiString;
 
 public class ServerInitializer extends ChannelInitializer<SocketChannel> {
     private static final int MAX_CONTENT_LENGTH = 65536;
+    private static final int ACCESS_LOG_CAPACITY = 8192;
+    /**
+     * 访问日志（进程内共享）
+     */
+    static final AccessLog ACCESS_LOG = new AccessLog(ACCESS_LOG_CAPACITY);
+    /**
+     * 请求延迟统计（进程内共享）
+     */
+    static final RequestMetrics REQUEST_METRICS = new RequestMetrics();
     private static final CorsConfig CORS_CONFIG = CorsConfigBuilder
             .forAnyOrigin()
             .build();
     private final ChannelHandler webServiceHandler;
+    private final ChannelHandler http2StreamInitializer;
 
     public ServerInitializer(ChannelHandler webServiceHandler) {
         this.webServiceHandler = webServiceHandler;
+        this.http2StreamInitializer = new Http2StreamInitializer();
     }
 
     @Override
     public void initChannel(SocketChannel ch) {
+        HttpServerCodec httpServerCodec = new HttpServerCodec();
+        Http2MultiplexCodec http2MultiplexCodec = Http2MultiplexCodecBuilder
+                .forServer(http2StreamInitializer)
+                .build();
+        HttpServerUpgradeHandler httpServerUpgradeHandler = new HttpServerUpgradeHandler(httpServerCodec, protocol -> {
+            if (AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)) {
+                return new Http2ServerUpgradeCodec(http2MultiplexCodec);
+            }
+            return null;
+        }, MAX_CONTENT_LENGTH);
+
         ChannelPipeline pipeline = ch.pipeline();
-        pipeline.addLast(new HttpServerCodec());
+        // HTTP/2 h2c升级、直接连接（prior knowledge），每个流一个子通道
+        pipeline.addLast(new CleartextHttp2ServerUpgradeHandler(httpServerCodec, httpServerUpgradeHandler, http2MultiplexCodec));
+        // HTTP/1.1
         pipeline.addLast(new HttpServerKeepAliveHandler());
         pipeline.addLast(new CorsHandler(CORS_CONFIG));
         pipeline.addLast(new HttpObjectAggregator(MAX_CONTENT_LENGTH));
         pipeline.addLast(new ChunkedWriteHandler());
+        pipeline.addLast(new AccessLogHandler(ACCESS_LOG, REQUEST_METRICS));
         pipeline.addLast(webServiceHandler);
     }
+
+    /**
+     * HTTP/2 流，转换为HTTP/1.1对象后复用WebServiceHandler
+     */
+    private class Http2StreamInitializer extends ChannelInitializer<Channel> {
+        @Override
+        protected void initChannel(Channel ch) {
+            ChannelPipeline pipeline = ch.pipeline();
+            pipeline.addLast(new Http2StreamFrameToHttpObjectCodec(true));
+            pipeline.addLast(new CorsHandler(CORS_CONFIG));
+            pipeline.addLast(new HttpObjectAggregator(MAX_CONTENT_LENGTH));
+            pipeline.addLast(new ChunkedWriteHandler());
+            pipeline.addLast(new AccessLogHandler(ACCESS_LOG, REQUEST_METRICS));
+            pipeline.addLast(webServiceHandler);
+        }
+    }
 }
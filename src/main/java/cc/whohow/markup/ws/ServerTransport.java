@@ -0,0 +1,78 @@
+package cc.whohow.markup.ws;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * 网络传输实现
+ */
+public enum ServerTransport {
+    NIO {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads) {
+            return new NioEventLoopGroup(threads);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public boolean isReusePortSupported() {
+            return false;
+        }
+    },
+    EPOLL {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads) {
+            return new EpollEventLoopGroup(threads);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public boolean isReusePortSupported() {
+            return true;
+        }
+    };
+
+    private static final Logger log = LogManager.getLogger();
+
+    /**
+     * 按名称选择，不可用时回退到NIO
+     */
+    public static ServerTransport of(String name) {
+        if ("epoll".equalsIgnoreCase(name)) {
+            if (Epoll.isAvailable()) {
+                return EPOLL;
+            }
+            log.warn("epoll unavailable, fallback to nio", Epoll.unavailabilityCause());
+        } else if (name != null && !name.isEmpty() && !"nio".equalsIgnoreCase(name)) {
+            log.warn("unknown transport {}, fallback to nio", name);
+        }
+        return NIO;
+    }
+
+    /**
+     * @param threads 线程数，0为默认
+     */
+    public abstract EventLoopGroup newEventLoopGroup(int threads);
+
+    public abstract Class<? extends ServerChannel> getServerChannelClass();
+
+    /**
+     * 是否支持SO_REUSEPORT多通道监听
+     */
+    public abstract boolean isReusePortSupported();
+}
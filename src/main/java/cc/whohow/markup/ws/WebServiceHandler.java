@@ -3,28 +3,49 @@ package cc.whohow.markup.ws;
 import cc.whohow.markup.Markdown;
 import cc.whohow.markup.Markup;
 import cc.whohow.markup.MarkupGitRepository;
+import cc.whohow.markup.impl.AccessLog;
 import cc.whohow.markup.impl.ClasspathStatic;
+import cc.whohow.markup.impl.HttpDate;
+import cc.whohow.markup.impl.HttpRange;
 import cc.whohow.markup.impl.Metadata;
+import cc.whohow.markup.impl.PrometheusText;
 import cc.whohow.markup.impl.SearchCursor;
 import cc.whohow.markup.impl.SearchResult;
+import cc.whohow.markup.impl.StaticContent;
+import cc.whohow.markup.impl.TocTree;
+import cc.whohow.markup.impl.UpdateException;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.DefaultFileRegion;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.DateFormatter;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.codec.http2.Http2StreamChannel;
 import io.netty.util.AsciiString;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Markup Web 服务
@@ -32,12 +53,18 @@ import java.util.*;
 @ChannelHandler.Sharable
 public class WebServiceHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
     private static final Logger log = LogManager.getLogger("ws");
-    private static final String SEARCH = "/.s";
-    private static final String TABLE_OF_CONTENT = "/.toc";
-    private static final String UPDATE = "/.updater";
+    static final String SEARCH = "/.s";
+    static final String TABLE_OF_CONTENT = "/.toc";
+    static final String SUGGEST = "/.suggest";
+    static final String UPDATE = "/.updater";
+    static final String UPDATE_HISTORY = "/.updater/history";
+    static final String METRICS = "/.metrics";
+    private static final int TOC_PAGE_SIZE = 1000;
+    private static final int MAX_SUGGESTIONS = 100;
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-    private static final CharSequence APPLICATION_JSON = new AsciiString("application/json;charset=utf-8");
-    private static final CharSequence DEFAULT_CACHE_CONTROL_VALUE = new AsciiString("no-cache,max-age=86400,must-revalidate");
+    private static final CharSequence APPLICATION_JSON = AsciiString.cached("application/json;charset=utf-8");
+    private static final CharSequence DEFAULT_CACHE_CONTROL_VALUE = AsciiString.cached("no-cache,max-age=86400,must-revalidate");
+    private static final CharSequence MULTIPART_BYTERANGES = AsciiString.cached("multipart/byteranges; boundary=");
     private static final ClasspathStatic STATIC = new ClasspathStatic();
 
     static {
@@ -53,7 +80,6 @@ public class WebServiceHandler extends SimpleChannelInboundHandler<FullHttpReque
 
     @Override
     protected void channelRead0(ChannelHandlerContext context, FullHttpRequest request) throws Exception {
-        log.info("{} {}", request.method(), request.uri());
         if (isBadRequest(request)) {
             send(context, HttpResponseStatus.BAD_REQUEST);
             return;
@@ -64,25 +90,36 @@ public class WebServiceHandler extends SimpleChannelInboundHandler<FullHttpReque
         }
 
         try {
-            QueryStringDecoder decoder = new QueryStringDecoder(request.uri());
-            String path = decoder.path();
-            if (path == null || path.equals("/")) {
+            String path = getPath(request.uri());
+            if (path.isEmpty() || path.equals("/")) {
                 path = "/index.html";
             }
             if (path.startsWith("/.")) {
                 switch (path) {
                     case TABLE_OF_CONTENT: {
-                        toc(context);
+                        toc(context, new QueryStringDecoder(request.uri()).parameters());
                         return;
                     }
                     case SEARCH: {
-                        search(context, decoder.parameters());
+                        search(context, new QueryStringDecoder(request.uri()).parameters());
+                        return;
+                    }
+                    case SUGGEST: {
+                        suggest(context, new QueryStringDecoder(request.uri()).parameters());
                         return;
                     }
                     case UPDATE: {
                         update(context);
                         return;
                     }
+                    case UPDATE_HISTORY: {
+                        sendJson(context, Collections.singletonMap("list", markup.getUpdateReports()));
+                        return;
+                    }
+                    case METRICS: {
+                        metrics(context);
+                        return;
+                    }
                     default: {
                         send(context, HttpResponseStatus.NOT_FOUND);
                         return;
@@ -104,42 +141,130 @@ public class WebServiceHandler extends SimpleChannelInboundHandler<FullHttpReque
     }
 
     /**
-     * 目录
+     * 目录，无dir参数时返回全部文件路径，有dir参数时分页返回目录的直接子节点
      */
-    private void toc(ChannelHandlerContext context) throws Exception {
-        Map<String, Object> result = Collections.singletonMap("toc", markup.list());
-        byte[] bytes = OBJECT_MAPPER.writeValueAsBytes(result);
+    private void toc(ChannelHandlerContext context, Map<String, List<String>> parameters) throws Exception {
+        Optional<String> dir = getFirst(parameters, "dir");
+        if (!dir.isPresent()) {
+            sendJson(context, Collections.singletonMap("toc", markup.list()));
+            return;
+        }
+        int offset;
+        int count;
+        try {
+            offset = getFirst(parameters, "o").map(Integer::parseInt).orElse(0);
+            count = getFirst(parameters, "n").map(Integer::parseInt).orElse(TOC_PAGE_SIZE);
+        } catch (NumberFormatException e) {
+            send(context, HttpResponseStatus.BAD_REQUEST);
+            return;
+        }
+        if (offset < 0 || count <= 0) {
+            send(context, HttpResponseStatus.BAD_REQUEST);
+            return;
+        }
+        // 目录以/结尾，根目录为空
+        String directory = dir.get();
+        if (!directory.isEmpty() && !directory.endsWith("/")) {
+            directory = directory + "/";
+        }
+        List<TocTree.Entry> children = markup.getTocTree().getChildren(directory);
+        if (children == null) {
+            send(context, HttpResponseStatus.NOT_FOUND);
+            return;
+        }
+        int next = (int) Long.min((long) offset + count, children.size());
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("dir", directory);
+        result.put("total", children.size());
+        result.put("list", (offset < next) ? children.subList(offset, next) : Collections.emptyList());
+        if (next < children.size()) {
+            result.put("next", next);
+        }
+        sendJson(context, result);
+    }
 
-        send(context, Unpooled.wrappedBuffer(bytes),
-                HttpHeaderNames.DATE, DateFormatter.format(new Date()),
-                HttpHeaderNames.CONTENT_LENGTH, bytes.length,
-                HttpHeaderNames.CONTENT_TYPE, APPLICATION_JSON,
-                HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE);
+    /**
+     * 输入提示
+     */
+    private void suggest(ChannelHandlerContext context, Map<String, List<String>> parameters) throws Exception {
+        int count;
+        try {
+            count = getFirst(parameters, "n").map(Integer::parseInt).orElse(10);
+        } catch (NumberFormatException e) {
+            send(context, HttpResponseStatus.BAD_REQUEST);
+            return;
+        }
+        if (count <= 0 || count > MAX_SUGGESTIONS) {
+            send(context, HttpResponseStatus.BAD_REQUEST);
+            return;
+        }
+        String text = getFirst(parameters, "q").orElse("");
+        sendJson(context, Collections.singletonMap("list", markup.suggest(text, count)));
     }
 
     /**
      * 搜索
      */
     private void search(ChannelHandlerContext context, Map<String, List<String>> parameters) throws Exception {
-        SearchCursor searchCursor;
-        String cursor = getFirst(parameters, "c").orElse(null);
-        if (cursor == null || cursor.isEmpty()) {
-            searchCursor = new SearchCursor();
-            searchCursor.setPrefix(getFirst(parameters, "p").orElse(null));
-            searchCursor.setKeyword(getFirst(parameters, "q").orElse(null));
-            searchCursor.setCount(getFirst(parameters, "n").map(Integer::parseInt).orElse(10));
-        } else {
-            searchCursor = new SearchCursor(cursor);
+        SearchResult<Markdown> searchResult;
+        try {
+            SearchCursor searchCursor;
+            String cursor = getFirst(parameters, "c").orElse(null);
+            if (cursor == null || cursor.isEmpty()) {
+                searchCursor = new SearchCursor();
+                searchCursor.setPrefix(getFirst(parameters, "p").orElse(null));
+                searchCursor.setKeyword(getFirst(parameters, "q").orElse(null));
+                searchCursor.setCount(getFirst(parameters, "n").map(Integer::parseInt).orElse(10));
+                searchCursor.setSort(getFirst(parameters, "s").orElse(null));
+                Optional<String> created = getFirst(parameters, "created");
+                if (created.isPresent()) {
+                    searchCursor.setCreatedFrom(parseTimeRange(created.get(), 0));
+                    searchCursor.setCreatedTo(parseTimeRange(created.get(), 1));
+                }
+                Optional<String> modified = getFirst(parameters, "modified");
+                if (modified.isPresent()) {
+                    searchCursor.setModifiedFrom(parseTimeRange(modified.get(), 0));
+                    searchCursor.setModifiedTo(parseTimeRange(modified.get(), 1));
+                }
+            } else {
+                searchCursor = new SearchCursor(cursor);
+            }
+            int facetDepth = getFirst(parameters, "f").map(Integer::parseInt).orElse(0);
+            if (facetDepth < 0) {
+                throw new IllegalArgumentException("f: " + facetDepth);
+            }
+            searchResult = markup.search(searchCursor, facetDepth);
+        } catch (IllegalArgumentException e) {
+            log.debug("search", e);
+            send(context, HttpResponseStatus.BAD_REQUEST);
+            return;
         }
+        sendJson(context, searchResult);
+    }
 
-        SearchResult<Markdown> searchResult = markup.search(searchCursor);
-        byte[] bytes = OBJECT_MAPPER.writeValueAsBytes(searchResult);
-
-        send(context, Unpooled.wrappedBuffer(bytes),
-                HttpHeaderNames.DATE, DateFormatter.format(new Date()),
-                HttpHeaderNames.CONTENT_LENGTH, bytes.length,
-                HttpHeaderNames.CONTENT_TYPE, APPLICATION_JSON,
-                HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE);
+    /**
+     * 时间范围 from,to（[from, to)，任一端可为空），时间为毫秒数、日期（yyyy-MM-dd，UTC）或ISO-8601时间
+     */
+    private static Long parseTimeRange(String range, int index) {
+        String[] parts = range.split(",", -1);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException(range);
+        }
+        String value = parts[index].trim();
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            if (value.chars().allMatch(Character::isDigit)) {
+                return Long.parseLong(value);
+            }
+            if (value.length() == 10) {
+                return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            }
+            return OffsetDateTime.parse(value).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException(value, e);
+        }
     }
 
     /**
@@ -148,20 +273,37 @@ public class WebServiceHandler extends SimpleChannelInboundHandler<FullHttpReque
     private void update(ChannelHandlerContext context) throws IOException {
         Map<String, Object> result = new HashMap<>();
         try {
-            markup.update();
+            result.put("report", markup.update());
             result.put("ok", true);
-        } catch (Exception e) {
+        } catch (UpdateException e) {
             result.put("ok", false);
+            result.put("report", e.getReport());
             log.error("update", e);
         }
         result.put("timestamp", new Date());
-        byte[] bytes = OBJECT_MAPPER.writeValueAsBytes(result);
+        sendJson(context, result);
+    }
+
+    /**
+     * 监控指标，Prometheus 文本格式
+     */
+    private void metrics(ChannelHandlerContext context) {
+        PrometheusText text = new PrometheusText();
+        ServerInitializer.REQUEST_METRICS.write(text);
+        text.metric("markup_access_log_dropped_total", "counter", "Access log entries dropped on overload.")
+                .sample("markup_access_log_dropped_total", ServerInitializer.ACCESS_LOG.getDropped());
+        text.metric("markup_cache_requests_total", "counter", "Cache lookups by result.")
+                .sample("markup_cache_requests_total", STATIC.getHitCount(), "cache", "static", "result", "hit")
+                .sample("markup_cache_requests_total", STATIC.getMissCount(), "cache", "static", "result", "miss");
+        markup.writeMetrics(text);
 
-        send(context, Unpooled.wrappedBuffer(bytes),
-                HttpHeaderNames.DATE, DateFormatter.format(new Date()),
-                HttpHeaderNames.CONTENT_LENGTH, bytes.length,
-                HttpHeaderNames.CONTENT_TYPE, APPLICATION_JSON,
-                HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE);
+        ByteBuf content = ByteBufUtil.writeUtf8(context.alloc(), text.toString());
+        HttpResponse response = newResponse(HttpResponseStatus.OK);
+        HttpUtil.setContentLength(response, content.readableBytes());
+        response.headers()
+                .set(HttpHeaderNames.CONTENT_TYPE, PrometheusText.CONTENT_TYPE)
+                .set(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE);
+        send(context, response, content);
     }
 
     /**
@@ -171,52 +313,230 @@ public class WebServiceHandler extends SimpleChannelInboundHandler<FullHttpReque
         String key = path.substring(1);
 
         MarkupGitRepository gitRepository = markup.getGitRepository();
+        if (!gitRepository.exists(key) && !STATIC.exists(key)) {
+            // 不存在的路径（扫描器流量）直接返回，不访问文件系统及缓存
+            send(context, HttpResponseStatus.NOT_FOUND);
+            return;
+        }
         Metadata metadata = gitRepository.getMetadata(key);
         if (metadata == Metadata.NOT_FOUND) {
-            metadata = STATIC.getMetadata(key);
-            if (metadata == Metadata.NOT_FOUND) {
+            StaticContent staticContent = STATIC.get(key);
+            if (staticContent == null) {
                 send(context, HttpResponseStatus.NOT_FOUND);
                 return;
-            } else if (isNotModified(request, metadata.getLastModified().getTime())) {
+            } else if (isNotModified(request, staticContent.getMetadata())) {
                 send(context, HttpResponseStatus.NOT_MODIFIED);
                 return;
             }
-            byte[] bytes = STATIC.read(key);
-            send(context, Unpooled.wrappedBuffer(bytes),
-                    HttpHeaderNames.DATE, DateFormatter.format(new Date()),
-                    HttpHeaderNames.CONTENT_LENGTH, metadata.getSize(),
-                    HttpHeaderNames.CONTENT_TYPE, metadata.getContentType(),
-                    HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(metadata.getLastModified()),
-                    HttpHeaderNames.CACHE_CONTROL, DEFAULT_CACHE_CONTROL_VALUE);
+            boolean gzip = staticContent.hasGzip() && isAcceptGzip(request);
+            if (staticContent.getLink() != null && context.channel() instanceof Http2StreamChannel) {
+                // HTTP/2 先发送103 Early Hints，客户端提前加载依赖资源
+                context.write(staticContent.newEarlyHints());
+            }
+            setCache(context, AccessLog.Entry.HIT);
+            send(context, staticContent.newResponse(gzip), staticContent.newContent(gzip));
             return;
-        } else if (isNotModified(request, metadata.getLastModified().getTime())) {
+        } else if (isNotModified(request, metadata)) {
             send(context, HttpResponseStatus.NOT_MODIFIED);
             return;
         }
 
-        send(context, new DefaultFileRegion(gitRepository.resolve(key).toFile(), 0, metadata.getSize()),
-                HttpHeaderNames.DATE, DateFormatter.format(new Date()),
-                HttpHeaderNames.CONTENT_LENGTH, metadata.getSize(),
-                HttpHeaderNames.CONTENT_TYPE, metadata.getContentType(),
-                HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(metadata.getLastModified()),
-                HttpHeaderNames.CACHE_CONTROL, DEFAULT_CACHE_CONTROL_VALUE);
+        File file = gitRepository.resolve(key).toFile();
+        setCache(context, AccessLog.Entry.MISS);
+        List<HttpRange> ranges = getRanges(request, metadata);
+        if (ranges == null) {
+            ByteBuf cached = gitRepository.readCached(key, metadata);
+            if (cached != null) {
+                setCache(context, AccessLog.Entry.HIT);
+                HttpResponse response = newFileResponse(HttpResponseStatus.OK, metadata);
+                HttpUtil.setContentLength(response, cached.readableBytes());
+                send(context, response, cached);
+                return;
+            }
+            HttpResponse response = newFileResponse(HttpResponseStatus.OK, metadata);
+            HttpUtil.setContentLength(response, metadata.getSize());
+            send(context, response, newFileContent(context, file, 0, metadata.getSize()));
+        } else if (ranges.isEmpty()) {
+            HttpResponse response = newResponse(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.headers()
+                    .set(HttpHeaderNames.CONTENT_LENGTH, HttpHeaderValues.ZERO)
+                    .set(HttpHeaderNames.CONTENT_RANGE, "bytes */" + metadata.getSize());
+            send(context, response, Unpooled.EMPTY_BUFFER);
+        } else if (ranges.size() == 1) {
+            HttpRange range = ranges.get(0);
+            HttpResponse response = newFileResponse(HttpResponseStatus.PARTIAL_CONTENT, metadata);
+            HttpUtil.setContentLength(response, range.getLength());
+            response.headers().set(HttpHeaderNames.CONTENT_RANGE, range.toContentRange(metadata.getSize()));
+            send(context, response, newFileContent(context, file, range.getStart(), range.getLength()));
+        } else {
+            sendMultipart(context, file, metadata, ranges);
+        }
     }
 
-    private void send(ChannelHandlerContext context, HttpResponseStatus status) {
-        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+    /**
+     * 记录缓存命中状态（访问日志）
+     */
+    private void setCache(ChannelHandlerContext context, String cache) {
+        context.channel().attr(AccessLogHandler.CACHE).set(cache);
+    }
+
+    /**
+     * 多区间响应，multipart/byteranges
+     */
+    private void sendMultipart(ChannelHandlerContext context, File file, Metadata metadata, List<HttpRange> ranges) {
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (HttpRange range : ranges) {
+            byte[] partHeader = getPartHeader(boundary, metadata.getContentType(), range.toContentRange(metadata.getSize()));
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range.getLength();
+        }
+        byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += end.length;
+
+        HttpResponse response = newFileResponse(HttpResponseStatus.PARTIAL_CONTENT, metadata);
+        HttpUtil.setContentLength(response, contentLength);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, MULTIPART_BYTERANGES + boundary);
         context.write(response);
-        context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+
+        // 按需生成分段，上一段写出后再写下一段，避免慢客户端堆积
+        List<Object> parts = new AbstractList<Object>() {
+            @Override
+            public Object get(int index) {
+                if (index == size() - 1) {
+                    return new DefaultHttpContent(Unpooled.wrappedBuffer(end));
+                }
+                if (index % 2 == 0) {
+                    return new DefaultHttpContent(Unpooled.wrappedBuffer(partHeaders.get(index / 2)));
+                }
+                HttpRange range = ranges.get(index / 2);
+                try {
+                    return newFileContent(context, file, range.getStart(), range.getLength());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public int size() {
+                return ranges.size() * 2 + 1;
+            }
+        };
+        writeSequentially(context, parts, 0);
+    }
+
+    /**
+     * 文件内容，HTTP/1.1使用sendfile，HTTP/2流分块读取
+     */
+    private Object newFileContent(ChannelHandlerContext context, File file, long position, long count) throws IOException {
+        if (context.channel() instanceof Http2StreamChannel) {
+            return new ChunkedFileContent(file, position, count);
+        }
+        return new DefaultFileRegion(file, position, count);
+    }
+
+    private void writeSequentially(ChannelHandlerContext context, List<Object> parts, int index) {
+        if (index == parts.size()) {
+            context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+            return;
+        }
+        Object part;
+        try {
+            part = parts.get(index);
+        } catch (UncheckedIOException e) {
+            // 文件在响应过程中被删除、替换，响应无法完成，关闭连接
+            log.warn("write part failed: {}", e.getMessage());
+            context.close();
+            return;
+        }
+        context.writeAndFlush(part).addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                writeSequentially(context, parts, index + 1);
+            } else {
+                future.channel().close();
+            }
+        });
     }
 
-    private void send(ChannelHandlerContext context, Object body, Object... headers) {
-        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
-        for (int i = 0; i < headers.length; i += 2) {
-            if (headers[i + 1] != null) {
-                response.headers().set((CharSequence) headers[i], headers[i + 1]);
+    private byte[] getPartHeader(String boundary, String contentType, String contentRange) {
+        StringBuilder buffer = new StringBuilder(128);
+        buffer.append("\r\n--").append(boundary).append("\r\n");
+        if (contentType != null) {
+            buffer.append(HttpHeaderNames.CONTENT_TYPE).append(": ").append(contentType).append("\r\n");
+        }
+        buffer.append(HttpHeaderNames.CONTENT_RANGE).append(": ").append(contentRange).append("\r\n\r\n");
+        return buffer.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 读取请求区间，If-Range 校验失败或无Range请求时返回null
+     */
+    private List<HttpRange> getRanges(FullHttpRequest request, Metadata metadata) {
+        String range = request.headers().get(HttpHeaderNames.RANGE);
+        if (range == null) {
+            return null;
+        }
+        String ifRange = request.headers().get(HttpHeaderNames.IF_RANGE);
+        if (ifRange != null) {
+            // 无ETag，只支持Last-Modified校验
+            Date date = DateFormatter.parseHttpDate(ifRange);
+            if (date == null || date.getTime() / 1000 != metadata.getLastModified().getTime() / 1000) {
+                return null;
             }
         }
+        return HttpRange.parse(range, metadata.getSize());
+    }
+
+    /**
+     * 响应，Date按秒缓存，响应头不校验（均为常量）
+     */
+    private HttpResponse newResponse(HttpResponseStatus status) {
+        HttpHeaders headers = new DefaultHttpHeaders(false)
+                .set(HttpHeaderNames.DATE, HttpDate.now());
+        return new DefaultHttpResponse(HttpVersion.HTTP_1_1, status, headers);
+    }
+
+    private HttpResponse newFileResponse(HttpResponseStatus status, Metadata metadata) {
+        HttpResponse response = newResponse(status);
+        if (metadata.getContentType() != null) {
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, metadata.getContentType());
+        }
+        response.headers()
+                .set(HttpHeaderNames.LAST_MODIFIED, metadata.getHttpLastModified())
+                .set(HttpHeaderNames.CACHE_CONTROL, DEFAULT_CACHE_CONTROL_VALUE)
+                .set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+        return response;
+    }
+
+    /**
+     * JSON响应，直接序列化到池化内存
+     */
+    private void sendJson(ChannelHandlerContext context, Object value) throws IOException {
+        ByteBuf content = context.alloc().buffer();
+        try {
+            OBJECT_MAPPER.writeValue((OutputStream) new ByteBufOutputStream(content), value);
+        } catch (Throwable e) {
+            content.release();
+            throw e;
+        }
+        HttpResponse response = newResponse(HttpResponseStatus.OK);
+        HttpUtil.setContentLength(response, content.readableBytes());
+        response.headers()
+                .set(HttpHeaderNames.CONTENT_TYPE, APPLICATION_JSON)
+                .set(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE);
+        send(context, response, content);
+    }
+
+    private void send(ChannelHandlerContext context, HttpResponseStatus status) {
+        context.write(newResponse(status));
+        context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+    }
+
+    private void send(ChannelHandlerContext context, HttpResponse response, Object body) {
         context.write(response);
-        context.write(body);
+        // HTTP/2流只接受HttpContent
+        context.write(body instanceof ByteBuf ? new DefaultHttpContent((ByteBuf) body) : body);
         context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
     }
 
@@ -228,9 +548,36 @@ public class WebServiceHandler extends SimpleChannelInboundHandler<FullHttpReque
         return !HttpMethod.GET.equals(request.method()) && !HttpMethod.POST.equals(request.method());
     }
 
-    private boolean isNotModified(FullHttpRequest request, long lastModified) {
-        return request.headers().getTimeMillis(HttpHeaderNames.IF_MODIFIED_SINCE, 0) / 1000 ==
-                lastModified / 1000;
+    private boolean isAcceptGzip(FullHttpRequest request) {
+        return request.headers().containsValue(HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderValues.GZIP, true);
+    }
+
+    private boolean isNotModified(FullHttpRequest request, Metadata metadata) {
+        String ifModifiedSince = request.headers().get(HttpHeaderNames.IF_MODIFIED_SINCE);
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        // 客户端通常原样返回Last-Modified，先比较字符串，避免解析日期
+        if (metadata.getHttpLastModified().contentEquals(ifModifiedSince)) {
+            return true;
+        }
+        Date date = DateFormatter.parseHttpDate(ifModifiedSince);
+        return date != null && date.getTime() / 1000 == metadata.getLastModified().getTime() / 1000;
+    }
+
+    /**
+     * 解析路径，不含查询参数，无转义字符时不解码
+     */
+    private String getPath(String uri) {
+        int end = uri.indexOf('?');
+        if (end < 0) {
+            end = uri.indexOf('#');
+        }
+        String path = (end < 0) ? uri : uri.substring(0, end);
+        if (path.indexOf('%') < 0) {
+            return path;
+        }
+        return new QueryStringDecoder(uri).path();
     }
 
     private Optional<String> getFirst(Map<String, List<String>> parameters, String key) {
@@ -10,7 +10,6 @@ marked.setOptions({
 var app = new Vue({
     el: '#app',
     data: {
-        toc: [],
         keyword: '',
         cursor: '',
         page: 0,
@@ -32,7 +31,6 @@ var app = new Vue({
     },
     mounted: function () {
         this.setKey(window.location.hash.substring(1));
-        this.getToc();
     },
     watch: {
         key: function (key) {
@@ -48,34 +46,34 @@ var app = new Vue({
         }
     },
     methods: {
-        getToc: function() {
-            var self = this;
-            axios.get('.toc').then(function (r) {
-                var toc = r.data.toc;
-                var index = {'': {}};
-                toc.forEach(function (key) {
-                    var paths = key.split('/');
-                    for (var i = 0; i < paths.length; i++) {
-                        var childKey = paths.slice(0, i + 1).join('/');
-                        if (index[childKey]) {
-                            continue;
-                        }
-                        var childNode = {
-                            id: (i === paths.length - 1) ? childKey : childKey + '/',
-                            label: paths[i]
-                        };
-                        index[childKey] = childNode;
-
-                        var parentKey = paths.slice(0, i).join('/');
-                        var parentNode = index[parentKey];
-                        if (parentNode.children == null) {
-                            parentNode.children = [];
-                        }
-                        parentNode.children.push(childNode);
+        loadToc: function (node, resolve) {
+            // 按目录逐级加载，根目录为空
+            var dir = node.level === 0 ? '' : node.data.id;
+            var toc = [];
+            var load = function (offset) {
+                axios.get('.toc', {
+                    params: {
+                        dir: dir,
+                        o: offset
+                    }
+                }).then(function (r) {
+                    r.data.list.forEach(function (entry) {
+                        toc.push({
+                            id: entry.key,
+                            label: entry.name,
+                            leaf: !entry.directory
+                        });
+                    });
+                    if (r.data.next) {
+                        load(r.data.next);
+                    } else {
+                        resolve(toc);
                     }
+                }).catch(function () {
+                    resolve(toc);
                 });
-                self.toc = index[''].children;
-            });
+            };
+            load(0);
         },
         onTocClick: function (data) {
             this.setKey(data.id);
@@ -83,6 +81,24 @@ var app = new Vue({
         onSearchClick: function(data) {
             this.setKey(data.key);
         },
+        suggest: function (keyword, callback) {
+            if (!keyword) {
+                callback([]);
+                return;
+            }
+            axios.get('.suggest', {
+                params: {
+                    q: keyword
+                }
+            }).then(function (r) {
+                callback(r.data.list);
+            }).catch(function () {
+                callback([]);
+            });
+        },
+        onSuggestSelect: function (item) {
+            this.setKey(item.key);
+        },
         setKey: function(key) {
             if (!/\/$/.test(key)) {
                 this.key = key;
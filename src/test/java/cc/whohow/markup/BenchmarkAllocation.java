@@ -0,0 +1,78 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.ws.WebServiceHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 响应路径内存分配（字节/请求），防止回退
+ */
+public class BenchmarkAllocation {
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 100000;
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    public void benchmark() throws Exception {
+        MarkupConfiguration configuration = new MarkupConfiguration();
+        configuration.setGit("file:///tmp/markup-benchmark.git");
+        try (Markup markup = new Markup(configuration)) {
+            EmbeddedChannel channel = new EmbeddedChannel(new WebServiceHandler(markup));
+
+            FullHttpRequest index = newRequest("/index.html");
+            String lastModified = request(channel, index).headers().get(HttpHeaderNames.LAST_MODIFIED);
+            FullHttpRequest notModified = newRequest("/index.html");
+            notModified.headers().set(HttpHeaderNames.IF_MODIFIED_SINCE, lastModified);
+
+            assertAllocation(channel, "static", index, 1024);
+            assertAllocation(channel, "not modified", notModified, 512);
+            assertAllocation(channel, "not found", newRequest("/wp-login.php"), 512);
+            assertAllocation(channel, "toc", newRequest("/.toc"), 1664);
+
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private void assertAllocation(EmbeddedChannel channel, String name, FullHttpRequest request, long limit) {
+        for (int i = 0; i < WARMUP; i++) {
+            request(channel, request);
+        }
+        long start = threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < ITERATIONS; i++) {
+            request(channel, request);
+        }
+        long bytes = (threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - start) / ITERATIONS;
+        System.out.printf("%s: %d bytes/request%n", name, bytes);
+        Assert.assertTrue(name + " allocation " + bytes + " > " + limit, bytes <= limit);
+    }
+
+    /**
+     * 发送请求（复用请求对象），释放响应，返回响应头
+     */
+    private HttpResponse request(EmbeddedChannel channel, FullHttpRequest request) {
+        channel.writeInbound(request.retain());
+        HttpResponse response = null;
+        Object message;
+        while ((message = channel.readOutbound()) != null) {
+            if (message instanceof HttpResponse) {
+                response = (HttpResponse) message;
+            }
+            ReferenceCountUtil.release(message);
+        }
+        return response;
+    }
+
+    private static FullHttpRequest newRequest(String uri) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+        request.headers().set(HttpHeaderNames.HOST, "127.0.0.1");
+        request.headers().set(HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderValues.GZIP);
+        return request;
+    }
+}
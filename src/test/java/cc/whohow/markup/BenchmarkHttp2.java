@@ -0,0 +1,211 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.ws.Server;
+import cc.whohow.markup.ws.ServerTransport;
+import cc.whohow.markup.ws.WebServiceHandler;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.codec.http2.Http2MultiplexCodecBuilder;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 首页加载（index.html + index.js + 根目录.toc?dir=）：HTTP/1.1 与 HTTP/2（prior knowledge + 103 Early Hints）对比
+ */
+public class BenchmarkHttp2 {
+    private static final int PORT = 18081;
+    private static final int WARMUP = 1000;
+    private static final int ITERATIONS = 5000;
+
+    private EventLoopGroup clientGroup;
+
+    @Test
+    public void benchmark() throws Exception {
+        MarkupConfiguration configuration = new MarkupConfiguration();
+        configuration.setGit("file:///tmp/markup-benchmark.git");
+
+        EventLoopGroup bossGroup = ServerTransport.NIO.newEventLoopGroup(1);
+        EventLoopGroup workerGroup = ServerTransport.NIO.newEventLoopGroup(0);
+        clientGroup = new NioEventLoopGroup();
+        try (Markup markup = new Markup(configuration)) {
+            List<Channel> channels = Server.bind(ServerTransport.NIO, bossGroup, workerGroup,
+                    new WebServiceHandler(markup), PORT, 1);
+
+            for (int i = 0; i < WARMUP; i++) {
+                loadHttp1();
+                loadHttp2();
+            }
+            report("HTTP/1.1", this::loadHttp1);
+            report("HTTP/2", this::loadHttp2);
+
+            for (Channel channel : channels) {
+                channel.close().sync();
+            }
+        } finally {
+            clientGroup.shutdownGracefully().sync();
+            bossGroup.shutdownGracefully().sync();
+            workerGroup.shutdownGracefully().sync();
+        }
+    }
+
+    private void report(String name, PageLoad pageLoad) throws Exception {
+        long[] latencies = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            pageLoad.load();
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%s page load: mean=%.3fms p50=%.3fms p99=%.3fms%n", name,
+                Arrays.stream(latencies).average().orElse(0) / 1e6,
+                latencies[ITERATIONS / 2] / 1e6,
+                latencies[ITERATIONS * 99 / 100] / 1e6);
+    }
+
+    /**
+     * 浏览器HTTP/1.1：首页后并行打开第二个连接加载依赖资源
+     */
+    private void loadHttp1() throws Exception {
+        Channel first = connectHttp1();
+        Assert.assertEquals(200, getHttp1(first, "/index.html").join().intValue());
+        Channel second = connectHttp1();
+        CompletableFuture<Integer> js = getHttp1(first, "/index.js");
+        CompletableFuture<Integer> toc = getHttp1(second, "/.toc?dir=");
+        Assert.assertEquals(200, js.join().intValue());
+        Assert.assertEquals(200, toc.join().intValue());
+        first.close();
+        second.close();
+    }
+
+    /**
+     * HTTP/2：单连接多路复用，收到103后立即加载依赖资源
+     */
+    private void loadHttp2() throws Exception {
+        Channel channel = new Bootstrap()
+                .group(clientGroup)
+                .channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(Http2MultiplexCodecBuilder
+                                .forClient(new ChannelInitializer<Channel>() {
+                                    @Override
+                                    protected void initChannel(Channel ch) {
+                                    }
+                                })
+                                .build());
+                    }
+                })
+                .connect("127.0.0.1", PORT).sync().channel();
+        CompletableFuture<Void> earlyHints = new CompletableFuture<>();
+        CompletableFuture<Integer> index = getHttp2(channel, "/index.html", earlyHints);
+        earlyHints.join();
+        CompletableFuture<Integer> js = getHttp2(channel, "/index.js", null);
+        CompletableFuture<Integer> toc = getHttp2(channel, "/.toc?dir=", null);
+        Assert.assertEquals(200, index.join().intValue());
+        Assert.assertEquals(200, js.join().intValue());
+        Assert.assertEquals(200, toc.join().intValue());
+        channel.close();
+    }
+
+    private Channel connectHttp1() throws InterruptedException {
+        return new Bootstrap()
+                .group(clientGroup)
+                .channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(new HttpClientCodec());
+                        ch.pipeline().addLast(new HttpObjectAggregator(1024 * 1024));
+                    }
+                })
+                .connect("127.0.0.1", PORT).sync().channel();
+    }
+
+    private CompletableFuture<Integer> getHttp1(Channel channel, String uri) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        channel.pipeline().addLast(new ResponseHandler(future));
+        channel.writeAndFlush(newRequest(uri));
+        return future;
+    }
+
+    private CompletableFuture<Integer> getHttp2(Channel channel, String uri, CompletableFuture<Void> earlyHints) throws InterruptedException {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        Channel stream = new Http2StreamChannelBootstrap(channel)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(false));
+                        ch.pipeline().addLast(new EarlyHintsHandler(earlyHints));
+                        ch.pipeline().addLast(new HttpObjectAggregator(1024 * 1024));
+                        ch.pipeline().addLast(new ResponseHandler(future));
+                    }
+                })
+                .open().sync().getNow();
+        stream.writeAndFlush(newRequest(uri));
+        return future;
+    }
+
+    private static FullHttpRequest newRequest(String uri) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+        request.headers().set(HttpHeaderNames.HOST, "127.0.0.1");
+        request.headers().set(HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderValues.GZIP);
+        return request;
+    }
+
+    private interface PageLoad {
+        void load() throws Exception;
+    }
+
+    private static class ResponseHandler extends SimpleChannelInboundHandler<FullHttpResponse> {
+        private final CompletableFuture<Integer> future;
+
+        ResponseHandler(CompletableFuture<Integer> future) {
+            this.future = future;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse msg) {
+            ctx.pipeline().remove(this);
+            future.complete(msg.status().code());
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * 过滤1xx响应
+     */
+    private static class EarlyHintsHandler extends ChannelInboundHandlerAdapter {
+        private final CompletableFuture<Void> earlyHints;
+
+        EarlyHintsHandler(CompletableFuture<Void> earlyHints) {
+            this.earlyHints = earlyHints;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof HttpResponse && ((HttpResponse) msg).status().codeClass() == HttpStatusClass.INFORMATIONAL) {
+                ReferenceCountUtil.release(msg);
+                if (earlyHints != null) {
+                    earlyHints.complete(null);
+                }
+                return;
+            }
+            ctx.fireChannelRead(msg);
+        }
+    }
+}
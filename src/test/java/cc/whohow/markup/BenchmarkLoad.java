@@ -0,0 +1,110 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.HttpDate;
+import cc.whohow.markup.impl.SearchCursor;
+import cc.whohow.markup.ws.Server;
+import cc.whohow.markup.ws.ServerTransport;
+import cc.whohow.markup.ws.WebServiceHandler;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.codec.http.*;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内启动Server，按固定速率混合请求压测：静态文件、目录、关键词搜索、翻页、条件请求
+ */
+public class BenchmarkLoad {
+    private static final int PORT = 18083;
+    private static final int FILES = 1000;
+    private static final int CONNECTIONS = 32;
+    private static final int[] RATES = {100, 200, 400};
+    private static final long WARMUP_SECONDS = 5;
+    private static final long DURATION_SECONDS = 15;
+    private static final String[] KEYWORDS = {"并发", "缓存", "netty", "bingfa", "线程池 索引"};
+
+    @Test
+    public void benchmark() throws Exception {
+        Path root = Files.createTempDirectory("markup-load");
+        String name = "markup-load";
+        Path clone = Paths.get(name);
+        MarkdownGenerator markdownGenerator = new MarkdownGenerator(FILES);
+        EventLoopGroup bossGroup = ServerTransport.NIO.newEventLoopGroup(1);
+        EventLoopGroup workerGroup = ServerTransport.NIO.newEventLoopGroup(0);
+        try (GitHistoryGenerator history = new GitHistoryGenerator(root.resolve(name), markdownGenerator, 0)) {
+            history.init(FILES);
+
+            MarkupConfiguration configuration = new MarkupConfiguration();
+            configuration.setGit(history.getUri().toString());
+            try (Markup markup = new Markup(configuration);
+                 LoadGenerator loadGenerator = newLoadGenerator(PORT, markdownGenerator)) {
+                markup.update();
+                List<Channel> channels = Server.bind(ServerTransport.NIO, bossGroup, workerGroup,
+                        new WebServiceHandler(markup), PORT, 1);
+
+                System.out.println("warmup");
+                System.out.println(loadGenerator.run(RATES[0], WARMUP_SECONDS, TimeUnit.SECONDS, CONNECTIONS));
+                for (int rate : RATES) {
+                    System.out.println(loadGenerator.run(rate, DURATION_SECONDS, TimeUnit.SECONDS, CONNECTIONS));
+                }
+
+                for (Channel channel : channels) {
+                    channel.close().sync();
+                }
+            }
+        } finally {
+            bossGroup.shutdownGracefully();
+            workerGroup.shutdownGracefully();
+            MoreFiles.deleteRecursively(root, RecursiveDeleteOption.ALLOW_INSECURE);
+            if (Files.exists(clone)) {
+                MoreFiles.deleteRecursively(clone, RecursiveDeleteOption.ALLOW_INSECURE);
+            }
+        }
+    }
+
+    /**
+     * 请求比例：静态文件50%、条件请求15%、目录10%、关键词搜索15%、翻页10%
+     */
+    static LoadGenerator newLoadGenerator(int port, MarkdownGenerator markdownGenerator) {
+        return new LoadGenerator("127.0.0.1", port)
+                .add("static", 50, () -> get("/" + randomKey(markdownGenerator)))
+                .add("conditional", 15, () -> {
+                    HttpRequest request = get("/" + randomKey(markdownGenerator));
+                    request.headers().set(HttpHeaderNames.IF_MODIFIED_SINCE, HttpDate.now());
+                    return request;
+                })
+                .add("toc", 10, () -> get("/.toc"))
+                .add("search", 15, () -> {
+                    QueryStringEncoder encoder = new QueryStringEncoder("/.s");
+                    encoder.addParam("q", KEYWORDS[ThreadLocalRandom.current().nextInt(KEYWORDS.length)]);
+                    return get(encoder.toString());
+                })
+                .add("cursor", 10, () -> {
+                    SearchCursor cursor = new SearchCursor();
+                    cursor.setKeyword(KEYWORDS[ThreadLocalRandom.current().nextInt(KEYWORDS.length)]);
+                    cursor.setCount(10);
+                    cursor.setOffset(10 * (1 + ThreadLocalRandom.current().nextInt(5)));
+                    QueryStringEncoder encoder = new QueryStringEncoder("/.s");
+                    encoder.addParam("c", cursor.toString());
+                    return get(encoder.toString());
+                });
+    }
+
+    private static String randomKey(MarkdownGenerator markdownGenerator) {
+        return markdownGenerator.key(ThreadLocalRandom.current().nextInt(FILES));
+    }
+
+    private static HttpRequest get(String uri) {
+        HttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+        request.headers().set(HttpHeaderNames.HOST, "127.0.0.1");
+        return request;
+    }
+}
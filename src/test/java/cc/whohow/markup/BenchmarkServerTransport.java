@@ -0,0 +1,103 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.ws.Server;
+import cc.whohow.markup.ws.ServerTransport;
+import cc.whohow.markup.ws.WebServiceHandler;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 网络传输实现对比：NIO、epoll、epoll + SO_REUSEPORT
+ */
+public class BenchmarkServerTransport {
+    private static final int PORT = 18080;
+    private static final int CONNECTIONS = 64;
+    private static final long DURATION_SECONDS = 10;
+
+    @Test
+    public void benchmark() throws Exception {
+        benchmark(ServerTransport.NIO, 1);
+        benchmark(ServerTransport.of("epoll"), 1);
+        benchmark(ServerTransport.of("epoll"), Runtime.getRuntime().availableProcessors());
+    }
+
+    private void benchmark(ServerTransport transport, int acceptors) throws Exception {
+        MarkupConfiguration configuration = new MarkupConfiguration();
+        configuration.setGit("file:///tmp/markup-benchmark.git");
+        configuration.setAcceptors(acceptors);
+        acceptors = Server.getAcceptors(transport, configuration);
+
+        EventLoopGroup bossGroup = transport.newEventLoopGroup(acceptors);
+        EventLoopGroup workerGroup = transport.newEventLoopGroup(0);
+        EventLoopGroup clientGroup = new NioEventLoopGroup();
+        try (Markup markup = new Markup(configuration)) {
+            List<Channel> channels = Server.bind(transport, bossGroup, workerGroup,
+                    new WebServiceHandler(markup), PORT, acceptors);
+
+            LongAdder requests = new LongAdder();
+            List<Channel> clients = new ArrayList<>(CONNECTIONS);
+            Bootstrap bootstrap = new Bootstrap()
+                    .group(clientGroup)
+                    .channel(NioSocketChannel.class)
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            ch.pipeline().addLast(new HttpClientCodec());
+                            ch.pipeline().addLast(new HttpObjectAggregator(1024 * 1024));
+                            ch.pipeline().addLast(new SimpleChannelInboundHandler<FullHttpResponse>() {
+                                @Override
+                                protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse msg) {
+                                    requests.increment();
+                                    ctx.writeAndFlush(newRequest());
+                                }
+                            });
+                        }
+                    });
+            for (int i = 0; i < CONNECTIONS; i++) {
+                clients.add(bootstrap.connect("127.0.0.1", PORT).sync().channel());
+            }
+
+            // 预热
+            for (Channel client : clients) {
+                client.writeAndFlush(newRequest());
+            }
+            TimeUnit.SECONDS.sleep(3);
+
+            requests.reset();
+            long start = System.nanoTime();
+            TimeUnit.SECONDS.sleep(DURATION_SECONDS);
+            long count = requests.sum();
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%s acceptors=%d connections=%d %.0f req/s%n",
+                    transport, acceptors, CONNECTIONS, count * 1e9 / elapsed);
+
+            for (Channel client : clients) {
+                client.close().sync();
+            }
+            for (Channel channel : channels) {
+                channel.close().sync();
+            }
+        } finally {
+            clientGroup.shutdownGracefully().sync();
+            bossGroup.shutdownGracefully().sync();
+            workerGroup.shutdownGracefully().sync();
+        }
+    }
+
+    private static FullHttpRequest newRequest() {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/index.html");
+        request.headers().set(HttpHeaderNames.HOST, "127.0.0.1");
+        return request;
+    }
+}
@@ -0,0 +1,108 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.UpdateReport;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 更新流程基准测试：生成本地Git仓库（N个文件、M次提交），通过 file:// 远程仓库测量
+ * 首次克隆+索引、增量更新的耗时、文件/秒及堆内存峰值
+ */
+public class BenchmarkUpdate {
+    /**
+     * 文件数、历史提交数
+     */
+    private static final int[][] SCENARIOS = {
+            {500, 10},
+            {500, 100},
+            {2000, 10},
+    };
+    /**
+     * 每次提交修改的文件比例
+     */
+    private static final double CHURN = 0.02;
+    private static final int WARM_UPDATES = 5;
+
+    @Test
+    public void benchmark() throws Exception {
+        for (int[] scenario : SCENARIOS) {
+            benchmark(scenario[0], scenario[1]);
+        }
+    }
+
+    private void benchmark(int fileCount, int commitCount) throws Exception {
+        Path root = Files.createTempDirectory("markup-update");
+        String name = "markup-update-" + fileCount + "-" + commitCount;
+        // Markup 克隆到当前目录
+        Path clone = Paths.get(name);
+        MarkdownGenerator markdownGenerator = new MarkdownGenerator(fileCount);
+        try (GitHistoryGenerator history = new GitHistoryGenerator(root.resolve(name), markdownGenerator, commitCount)) {
+            long start = System.nanoTime();
+            history.init(fileCount);
+            history.history(commitCount - 1, CHURN);
+            System.out.printf("%n== %d files, %d commits, churn %.2f (generated in %dms)%n",
+                    history.getFileCount(), history.getCommitCount(), CHURN,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            MarkupConfiguration configuration = new MarkupConfiguration();
+            configuration.setGit(history.getUri().toString());
+            try (Markup markup = new Markup(configuration)) {
+                // 首次克隆、索引
+                resetPeakHeap();
+                UpdateReport cold = markup.update();
+                print("cold", history.getFileCount(), cold);
+
+                // 增量更新
+                for (int i = 0; i < WARM_UPDATES; i++) {
+                    int changed = history.commit(CHURN);
+                    resetPeakHeap();
+                    UpdateReport warm = markup.update();
+                    print("warm", changed, warm);
+                }
+            }
+        } finally {
+            MoreFiles.deleteRecursively(root, RecursiveDeleteOption.ALLOW_INSECURE);
+            if (Files.exists(clone)) {
+                MoreFiles.deleteRecursively(clone, RecursiveDeleteOption.ALLOW_INSECURE);
+            }
+        }
+    }
+
+    private static void print(String name, int files, UpdateReport report) {
+        System.out.printf("%s: %d files, %.1fms, %.1f files/s, peak heap %dMB%n",
+                name, files, report.getDuration(), files * 1000 / report.getDuration(), getPeakHeap() / 1024 / 1024);
+        System.out.println("  " + report.getPhases());
+        System.out.println("  " + report.getCounts());
+    }
+
+    private static void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * 各堆内存池峰值之和（上限估计）
+     */
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,120 @@
+package cc.whohow.markup;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成测试用Git仓库：初始N个文件，之后每次提交按比例修改、新增、删除文件
+ */
+public class GitHistoryGenerator implements AutoCloseable {
+    private static final long START = 1546300800000L;
+
+    private final Path directory;
+    private final MarkdownGenerator generator;
+    private final Random random;
+    // 当前文件序号 -> 版本
+    private final Map<Integer, Integer> files = new LinkedHashMap<>();
+    private Git git;
+    private int nextFile;
+    private int commits;
+
+    public GitHistoryGenerator(Path directory, MarkdownGenerator generator, long seed) {
+        this.directory = directory;
+        this.generator = generator;
+        this.random = new Random(seed);
+    }
+
+    public URI getUri() {
+        return directory.toUri();
+    }
+
+    public int getFileCount() {
+        return files.size();
+    }
+
+    public int getCommitCount() {
+        return commits;
+    }
+
+    /**
+     * 初始化仓库，提交N个文件
+     */
+    public void init(int fileCount) throws Exception {
+        git = Git.init().setDirectory(directory.toFile()).call();
+        for (int i = 0; i < fileCount; i++) {
+            write(nextFile++, 0);
+        }
+        commit("init");
+    }
+
+    /**
+     * 提交一次变更：修改churn比例的文件，另外新增、删除其中的1/10
+     *
+     * @return 变更文件数
+     */
+    public int commit(double churn) throws Exception {
+        int modified = Integer.max(1, (int) Math.round(files.size() * churn));
+        int added = Integer.max(1, modified / 10);
+        int deleted = Integer.min(added, files.size() - 1);
+
+        List<Integer> current = new ArrayList<>(files.keySet());
+        Collections.shuffle(current, random);
+        for (int i = 0; i < deleted; i++) {
+            int file = current.get(i);
+            files.remove(file);
+            git.rm().addFilepattern(generator.key(file)).call();
+        }
+        for (int i = deleted; i < deleted + modified && i < current.size(); i++) {
+            int file = current.get(i);
+            write(file, files.get(file) + 1);
+        }
+        for (int i = 0; i < added; i++) {
+            write(nextFile++, 0);
+        }
+        commit("churn " + commits);
+        return modified + added + deleted;
+    }
+
+    /**
+     * 连续提交多次变更
+     */
+    public void history(int count, double churn) throws Exception {
+        for (int i = 0; i < count; i++) {
+            commit(churn);
+        }
+    }
+
+    private void write(int file, int version) throws IOException {
+        Path path = directory.resolve(generator.key(file));
+        Files.createDirectories(path.getParent());
+        Files.write(path, generator.content(file, version).getBytes(StandardCharsets.UTF_8));
+        files.put(file, version);
+    }
+
+    private void commit(String message) throws Exception {
+        // 提交时间递增，文件创建时间各不相同
+        Date when = new Date(START + TimeUnit.HOURS.toMillis(commits++));
+        PersonIdent ident = new PersonIdent("markup", "markup@localhost", when, TimeZone.getTimeZone("UTC"));
+        git.add().addFilepattern(".").call();
+        git.commit()
+                .setMessage(message)
+                .setAuthor(ident)
+                .setCommitter(ident)
+                .call();
+    }
+
+    @Override
+    public void close() {
+        if (git != null) {
+            git.close();
+        }
+    }
+}
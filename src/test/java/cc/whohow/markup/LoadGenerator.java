@@ -0,0 +1,354 @@
+package cc.whohow.markup;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.*;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 固定速率HTTP压测（Netty客户端），按权重混合请求
+ * <p>
+ * 请求按计划时间发出，连接忙时排队，延迟从计划时间开始计算（修正协调遗漏），同时记录实际服务时间
+ */
+public class LoadGenerator implements AutoCloseable {
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final String host;
+    private final int port;
+    private final List<RequestType> mix = new ArrayList<>();
+    private final EventLoopGroup group = new NioEventLoopGroup();
+    private final Random random = new Random(0);
+    private int totalWeight;
+
+    public LoadGenerator(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * 添加请求类型
+     *
+     * @param weight  权重
+     * @param request 每次调用生成一个新请求
+     */
+    public LoadGenerator add(String name, int weight, Supplier<HttpRequest> request) {
+        mix.add(new RequestType(name, weight, request));
+        totalWeight += weight;
+        return this;
+    }
+
+    /**
+     * 按固定速率运行
+     *
+     * @param rate        每秒请求数
+     * @param duration    持续时间
+     * @param connections 连接数（每个连接同时只有一个请求）
+     */
+    public Result run(int rate, long duration, TimeUnit unit, int connections) throws Exception {
+        Result result = new Result(mix, rate);
+        Queue<Pending> backlog = new ConcurrentLinkedQueue<>();
+        Queue<Channel> idle = new ConcurrentLinkedQueue<>();
+        Queue<Channel> channels = new ConcurrentLinkedQueue<>();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        Bootstrap bootstrap = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new HttpClientCodec());
+                        ch.pipeline().addLast(new Connection(backlog, idle, inFlight, result));
+                    }
+                });
+        try {
+            for (int i = 0; i < connections; i++) {
+                connect(bootstrap, channels, running).sync();
+            }
+
+            long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+            long start = System.nanoTime();
+            long end = start + unit.toNanos(duration);
+            for (long i = 0; ; i++) {
+                long intended = start + i * interval;
+                if (intended >= end) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                inFlight.incrementAndGet();
+                backlog.offer(new Pending(pick(), intended));
+                Channel channel = idle.poll();
+                if (channel != null) {
+                    channel.eventLoop().execute(() -> Connection.next(channel));
+                }
+            }
+            long drainEnd = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+            while (inFlight.get() > 0 && System.nanoTime() < drainEnd) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            result.finish(System.nanoTime() - start, inFlight.get());
+            return result;
+        } finally {
+            running.set(false);
+            for (Channel channel : channels) {
+                channel.close().syncUninterruptibly();
+            }
+        }
+    }
+
+    /**
+     * 建立连接，连接被服务端关闭（如 Connection: close）时重连
+     */
+    private ChannelFuture connect(Bootstrap bootstrap, Queue<Channel> channels, AtomicBoolean running) {
+        ChannelFuture future = bootstrap.connect(host, port);
+        Channel channel = future.channel();
+        channels.add(channel);
+        future.addListener(f -> {
+            if (f.isSuccess()) {
+                Connection.next(channel);
+            }
+        });
+        channel.closeFuture().addListener(f -> {
+            channels.remove(channel);
+            if (running.get()) {
+                connect(bootstrap, channels, running);
+            }
+        });
+        return future;
+    }
+
+    private RequestType pick() {
+        int n = random.nextInt(totalWeight);
+        for (RequestType type : mix) {
+            n -= type.weight;
+            if (n < 0) {
+                return type;
+            }
+        }
+        throw new AssertionError();
+    }
+
+    @Override
+    public void close() {
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    private static class RequestType {
+        final String name;
+        final int weight;
+        final Supplier<HttpRequest> request;
+
+        RequestType(String name, int weight, Supplier<HttpRequest> request) {
+            this.name = name;
+            this.weight = weight;
+            this.request = request;
+        }
+    }
+
+    private static class Pending {
+        final RequestType type;
+        final long intended;
+        long sent;
+
+        Pending(RequestType type, long intended) {
+            this.type = type;
+            this.intended = intended;
+        }
+    }
+
+    /**
+     * 单个连接，响应完成后从队列取下一个请求
+     */
+    private static class Connection extends SimpleChannelInboundHandler<HttpObject> {
+        private final Queue<Pending> backlog;
+        private final Queue<Channel> idle;
+        private final AtomicInteger inFlight;
+        private final Result result;
+        private Pending current;
+        private int status;
+        private boolean keepAlive;
+
+        Connection(Queue<Pending> backlog, Queue<Channel> idle, AtomicInteger inFlight, Result result) {
+            this.backlog = backlog;
+            this.idle = idle;
+            this.inFlight = inFlight;
+            this.result = result;
+        }
+
+        static void next(Channel channel) {
+            channel.pipeline().get(Connection.class).next(channel, false);
+        }
+
+        private void next(Channel channel, boolean retry) {
+            Pending pending = backlog.poll();
+            if (pending == null) {
+                idle.offer(channel);
+                // 放回空闲队列后，可能有新请求进入队列
+                if (!retry && !backlog.isEmpty() && idle.remove(channel)) {
+                    next(channel, true);
+                }
+                return;
+            }
+            current = pending;
+            pending.sent = System.nanoTime();
+            channel.writeAndFlush(pending.type.request.get());
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+            if (msg instanceof HttpResponse) {
+                status = ((HttpResponse) msg).status().code();
+                keepAlive = HttpUtil.isKeepAlive((HttpResponse) msg);
+            }
+            if (msg instanceof LastHttpContent && current != null) {
+                long now = System.nanoTime();
+                result.record(current, now, status);
+                current = null;
+                inFlight.decrementAndGet();
+                if (keepAlive) {
+                    next(ctx.channel(), false);
+                } else {
+                    ctx.close();
+                }
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            idle.remove(ctx.channel());
+            if (current != null) {
+                result.error(current.type);
+                current = null;
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            ctx.close();
+        }
+    }
+
+    /**
+     * 压测结果，延迟单位微秒
+     */
+    public static class Result {
+        private final int rate;
+        private final Map<String, Recorder> latency = new LinkedHashMap<>();
+        private final Map<String, Recorder> serviceTime = new LinkedHashMap<>();
+        private final Map<String, LongAdder> errors = new LinkedHashMap<>();
+        private final Map<String, Histogram> latencyHistograms = new LinkedHashMap<>();
+        private final Map<String, Histogram> serviceTimeHistograms = new LinkedHashMap<>();
+        private long elapsed;
+        private long unfinished;
+
+        Result(List<RequestType> mix, int rate) {
+            this.rate = rate;
+            for (RequestType type : mix) {
+                latency.put(type.name, new Recorder(3));
+                serviceTime.put(type.name, new Recorder(3));
+                errors.put(type.name, new LongAdder());
+            }
+        }
+
+        void record(Pending pending, long now, int status) {
+            latency.get(pending.type.name).recordValue(TimeUnit.NANOSECONDS.toMicros(now - pending.intended));
+            serviceTime.get(pending.type.name).recordValue(TimeUnit.NANOSECONDS.toMicros(now - pending.sent));
+            if (status >= 400) {
+                errors.get(pending.type.name).increment();
+            }
+        }
+
+        void error(RequestType type) {
+            errors.get(type.name).increment();
+        }
+
+        void finish(long elapsed, long unfinished) {
+            this.elapsed = elapsed;
+            this.unfinished = unfinished;
+            for (String name : latency.keySet()) {
+                latencyHistograms.put(name, latency.get(name).getIntervalHistogram());
+                serviceTimeHistograms.put(name, serviceTime.get(name).getIntervalHistogram());
+            }
+        }
+
+        /**
+         * 全部请求的延迟（从计划时间开始）
+         */
+        public Histogram getLatency() {
+            return merge(latencyHistograms.values());
+        }
+
+        /**
+         * 全部请求的服务时间（从实际发出开始）
+         */
+        public Histogram getServiceTime() {
+            return merge(serviceTimeHistograms.values());
+        }
+
+        public long getErrors() {
+            return errors.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        public long getUnfinished() {
+            return unfinished;
+        }
+
+        /**
+         * 实际吞吐量，每秒完成请求数
+         */
+        public double getThroughput() {
+            return getLatency().getTotalCount() * 1e9 / elapsed;
+        }
+
+        private static Histogram merge(Collection<Histogram> histograms) {
+            Histogram total = new Histogram(3);
+            for (Histogram histogram : histograms) {
+                total.add(histogram);
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder buffer = new StringBuilder();
+            buffer.append(String.format("target %d req/s, throughput %.1f req/s, errors %d, unfinished %d%n",
+                    rate, getThroughput(), getErrors(), unfinished));
+            buffer.append(String.format("%-12s %8s %6s %10s %10s %10s %10s %10s%n",
+                    "type", "count", "errors", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "svc p99"));
+            for (String name : latencyHistograms.keySet()) {
+                format(buffer, name, latencyHistograms.get(name), serviceTimeHistograms.get(name), errors.get(name).sum());
+            }
+            format(buffer, "all", getLatency(), getServiceTime(), getErrors());
+            return buffer.toString();
+        }
+
+        private static void format(StringBuilder buffer, String name, Histogram latency, Histogram serviceTime, long errors) {
+            buffer.append(String.format("%-12s %8d %6d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    name, latency.getTotalCount(), errors,
+                    latency.getValueAtPercentile(50) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0,
+                    latency.getValueAtPercentile(99.9) / 1000.0,
+                    latency.getMaxValue() / 1000.0,
+                    serviceTime.getValueAtPercentile(99) / 1000.0));
+        }
+    }
+}
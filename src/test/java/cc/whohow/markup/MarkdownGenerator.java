@@ -0,0 +1,168 @@
+package cc.whohow.markup;
+
+import org.commonmark.parser.Parser;
+import org.commonmark.renderer.html.HtmlRenderer;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成测试用Markdown语料，相同参数、序号、版本生成相同内容
+ */
+public class MarkdownGenerator {
+    private static final String[] CJK_WORDS = {
+            "并发", "线程池", "缓存", "索引", "搜索", "分词", "拼音", "文档", "目录", "版本",
+            "提交", "仓库", "服务器", "客户端", "请求", "响应", "延迟", "吞吐量", "内存", "磁盘",
+            "网络", "协议", "加密", "压缩", "队列", "调度", "事务", "数据库", "配置", "部署",
+            "监控", "日志", "告警", "容器", "集群", "节点", "负载均衡", "反向代理", "静态文件", "接口",
+            "函数", "对象", "继承", "泛型", "注解", "反射", "虚拟机", "垃圾回收", "编译", "优化",
+            "笔记", "读书", "学习", "总结", "问题", "方案", "设计", "实现", "测试", "重构"};
+    private static final String[] LATIN_WORDS = {
+            "java", "netty", "lucene", "git", "markdown", "http", "cache", "index", "search", "query",
+            "thread", "pool", "buffer", "channel", "pipeline", "handler", "future", "promise", "stream", "reader",
+            "writer", "commit", "branch", "merge", "diff", "tree", "blob", "config", "server", "client",
+            "request", "response", "latency", "throughput", "memory", "heap", "direct", "allocation", "segment", "document",
+            "the", "a", "of", "and", "to", "in", "is", "for", "with", "on"};
+    private static final String[] CODE_LINES = {
+            "ByteBuf buffer = ctx.alloc().buffer();",
+            "try (IndexReader reader = DirectoryReader.open(index)) {",
+            "    TopDocs topDocs = searcher.search(query, 10);",
+            "}",
+            "git pull --ff-only origin master",
+            "curl -s http://localhost/.s?q=cache",
+            "for (int i = 0; i < n; i++) {",
+            "    sum += values[i];",
+            "executor.schedule(task, 1, TimeUnit.MINUTES);"};
+    private static final long CREATED = 1546300800000L;
+
+    private final long seed;
+    private final Parser parser = Parser.builder().build();
+    private final HtmlRenderer renderer = HtmlRenderer.builder().build();
+    // 每篇字符数
+    private int size = 2048;
+    // 中文词比例
+    private double cjkRatio = 0.5;
+    // 目录数
+    private int directories = 16;
+
+    public MarkdownGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public double getCjkRatio() {
+        return cjkRatio;
+    }
+
+    public void setCjkRatio(double cjkRatio) {
+        this.cjkRatio = cjkRatio;
+    }
+
+    public int getDirectories() {
+        return directories;
+    }
+
+    public void setDirectories(int directories) {
+        this.directories = directories;
+    }
+
+    /**
+     * 文件路径
+     */
+    public String key(int i) {
+        return "dir" + (i % directories) + "/doc" + i + ".md";
+    }
+
+    /**
+     * Markdown原文
+     *
+     * @param version 版本，修改文件时使用不同版本
+     */
+    public String content(int i, int version) {
+        Random random = new Random(seed * 31 + i * 1_000_003L + version);
+        StringBuilder buffer = new StringBuilder(size + 256);
+        buffer.append("# ");
+        sentence(buffer, random, 4 + random.nextInt(4));
+        buffer.append("\n\n");
+        while (buffer.length() < size) {
+            int block = random.nextInt(10);
+            if (block == 0) {
+                buffer.append("## ");
+                sentence(buffer, random, 2 + random.nextInt(4));
+                buffer.append("\n\n");
+            } else if (block == 1) {
+                buffer.append("```java\n");
+                for (int n = 2 + random.nextInt(5); n > 0; n--) {
+                    buffer.append(CODE_LINES[random.nextInt(CODE_LINES.length)]).append('\n');
+                }
+                buffer.append("```\n\n");
+            } else if (block == 2) {
+                for (int n = 2 + random.nextInt(4); n > 0; n--) {
+                    buffer.append("* ");
+                    sentence(buffer, random, 3 + random.nextInt(6));
+                    buffer.append('\n');
+                }
+                buffer.append('\n');
+            } else {
+                for (int n = 2 + random.nextInt(4); n > 0; n--) {
+                    sentence(buffer, random, 8 + random.nextInt(16));
+                }
+                buffer.append("\n\n");
+            }
+        }
+        return buffer.toString();
+    }
+
+    public Markdown markdown(int i) {
+        return markdown(i, 0);
+    }
+
+    public Markdown markdown(int i, int version) {
+        Markdown markdown = new Markdown();
+        markdown.setKey(key(i));
+        markdown.setContent(content(i, version));
+        markdown.setHtml(renderer.render(parser.parse(markdown.getContent())));
+        markdown.setCreated(new Date(CREATED + TimeUnit.HOURS.toMillis(i)));
+        // 每个版本晚一天修改
+        markdown.setModified(new Date(markdown.getCreated().getTime() + TimeUnit.DAYS.toMillis(version)));
+        return markdown;
+    }
+
+    public List<Markdown> generate(int count) {
+        List<Markdown> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(markdown(i));
+        }
+        return list;
+    }
+
+    private void sentence(StringBuilder buffer, Random random, int words) {
+        boolean latin = false;
+        for (int w = 0; w < words; w++) {
+            if (random.nextDouble() < cjkRatio) {
+                if (latin) {
+                    buffer.append(' ');
+                }
+                buffer.append(CJK_WORDS[random.nextInt(CJK_WORDS.length)]);
+                latin = false;
+            } else {
+                if (w > 0) {
+                    buffer.append(' ');
+                }
+                buffer.append(LATIN_WORDS[random.nextInt(LATIN_WORDS.length)]);
+                latin = true;
+            }
+        }
+        buffer.append(cjkRatio >= 0.5 ? "。" : ". ");
+    }
+}
@@ -0,0 +1,29 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.AccessLog;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestAccessLog {
+    @Test
+    public void testOffer() throws Exception {
+        AccessLog accessLog = new AccessLog(4);
+        int accepted = 0;
+        for (int i = 0; i < 10000; i++) {
+            AccessLog.Entry entry = new AccessLog.Entry("GET", "/" + i);
+            entry.setStatus(200);
+            if (accessLog.offer(entry)) {
+                accepted++;
+            }
+        }
+        System.out.println(accepted);
+        System.out.println(accessLog.getDropped());
+        Assert.assertEquals(10000, accepted + accessLog.getDropped());
+        accessLog.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacity() {
+        new AccessLog(3);
+    }
+}
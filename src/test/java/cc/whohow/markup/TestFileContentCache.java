@@ -0,0 +1,55 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.FileContentCache;
+import io.netty.buffer.ByteBuf;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+public class TestFileContentCache {
+    private static final byte[] HELLO = "hello".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void test() throws Exception {
+        try (FileContentCache cache = new FileContentCache(1024, 16)) {
+            // 冷文件
+            Assert.assertNull(cache.get("a", 5, buffer -> buffer.writeBytes(HELLO)));
+            // 热文件
+            ByteBuf buffer = cache.get("a", 5, b -> b.writeBytes(HELLO));
+            Assert.assertNotNull(buffer);
+            Assert.assertEquals("hello", buffer.toString(StandardCharsets.UTF_8));
+            // 失效后仍可读取
+            cache.invalidate(Collections.singleton("a"));
+            Assert.assertEquals("hello", buffer.toString(StandardCharsets.UTF_8));
+            Assert.assertTrue(buffer.release());
+            // 大文件
+            Assert.assertNull(cache.get("b", 17, b -> b.writeZero(17)));
+            Assert.assertNull(cache.get("b", 17, b -> b.writeZero(17)));
+        }
+    }
+
+    @Test
+    public void testSizeMismatch() throws Exception {
+        try (FileContentCache cache = new FileContentCache(1024, 16)) {
+            // 内容比元数据短、长时都不缓存
+            Assert.assertNull(cache.get("a", 5, b -> b.writeBytes(HELLO, 0, 3)));
+            try {
+                cache.get("a", 5, b -> b.writeBytes(HELLO, 0, 3));
+                Assert.fail();
+            } catch (IOException expected) {
+            }
+            try {
+                cache.get("a", 4, b -> b.writeBytes(HELLO));
+                Assert.fail();
+            } catch (IOException expected) {
+            }
+            Assert.assertEquals(0, cache.size());
+            ByteBuf buffer = cache.get("a", 5, b -> b.writeBytes(HELLO));
+            Assert.assertEquals("hello", buffer.toString(StandardCharsets.UTF_8));
+            buffer.release();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.HttpRange;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TestHttpRange {
+    @Test
+    public void testParse() {
+        List<HttpRange> ranges = HttpRange.parse("bytes=0-99,200-499,-50", 1000);
+        System.out.println(ranges);
+        Assert.assertEquals(3, ranges.size());
+        Assert.assertEquals("bytes 0-99/1000", ranges.get(0).toContentRange(1000));
+        Assert.assertEquals("bytes 200-499/1000", ranges.get(1).toContentRange(1000));
+        Assert.assertEquals("bytes 950-999/1000", ranges.get(2).toContentRange(1000));
+    }
+
+    @Test
+    public void testCoalesce() {
+        // 乱序、重叠、相邻区间排序合并
+        List<HttpRange> ranges = HttpRange.parse("bytes=500-599,0-99,50-149,150-199,-10", 1000);
+        System.out.println(ranges);
+        Assert.assertEquals(3, ranges.size());
+        Assert.assertEquals("bytes 0-199/1000", ranges.get(0).toContentRange(1000));
+        Assert.assertEquals("bytes 500-599/1000", ranges.get(1).toContentRange(1000));
+        Assert.assertEquals("bytes 990-999/1000", ranges.get(2).toContentRange(1000));
+        // 重复区间总长度超过文件大小，忽略Range请求
+        StringBuilder range = new StringBuilder("bytes=0-");
+        for (int i = 1; i < HttpRange.MAX_RANGES; i++) {
+            range.append(",0-");
+        }
+        Assert.assertNull(HttpRange.parse(range.toString(), 1000));
+        Assert.assertNull(HttpRange.parse("bytes=0-599,400-999", 1000));
+    }
+
+    @Test
+    public void testUnsatisfiable() {
+        Assert.assertTrue(HttpRange.parse("bytes=1000-", 1000).isEmpty());
+        Assert.assertNull(HttpRange.parse("bytes=abc", 1000));
+        Assert.assertNull(HttpRange.parse("items=0-1", 1000));
+    }
+}
@@ -0,0 +1,31 @@
+package cc.whohow.markup;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestMarkdownGenerator {
+    @Test
+    public void test() {
+        MarkdownGenerator generator = new MarkdownGenerator(1);
+        generator.setSize(512);
+        Markdown markdown = generator.markdown(7);
+        System.out.println(markdown.getKey());
+        System.out.println(markdown.getContent());
+
+        Assert.assertEquals("dir7/doc7.md", markdown.getKey());
+        Assert.assertTrue(markdown.getContent().length() >= 512);
+        MarkdownGenerator same = new MarkdownGenerator(1);
+        same.setSize(512);
+        Assert.assertEquals(markdown.getContent(), same.content(7, 0));
+        Assert.assertNotEquals(markdown.getContent(), generator.content(7, 1));
+    }
+
+    @Test
+    public void testCjkRatio() {
+        MarkdownGenerator generator = new MarkdownGenerator(1);
+        generator.setCjkRatio(0);
+        Assert.assertFalse(generator.content(0, 0).chars().anyMatch(c -> Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN));
+        generator.setCjkRatio(1);
+        Assert.assertTrue(generator.content(0, 0).chars().anyMatch(c -> Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN));
+    }
+}
@@ -0,0 +1,42 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.LatencyHistogram;
+import cc.whohow.markup.impl.PrometheusText;
+import cc.whohow.markup.impl.RequestMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestMetrics {
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram latency = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            latency.record(i);
+        }
+        Assert.assertEquals(1000, latency.snapshot().getTotalCount());
+        latency.record(Long.MAX_VALUE);
+        Assert.assertEquals(1001, latency.snapshot().getTotalCount());
+    }
+
+    @Test
+    public void testPrometheusText() {
+        RequestMetrics requestMetrics = new RequestMetrics();
+        requestMetrics.record(RequestMetrics.SEARCH, 1500);
+        requestMetrics.record(null, 1500);
+
+        PrometheusText text = new PrometheusText();
+        text.metric("markup_cache_requests_total", "counter", "Cache lookups by result.")
+                .sample("markup_cache_requests_total", 1, "cache", "static", "result", "hit");
+        requestMetrics.write(text);
+        text.metric("markup_cache_requests_total", "counter", "Cache lookups by result.")
+                .sample("markup_cache_requests_total", 2, "cache", "\"content\"", "result", "hit");
+        String output = text.toString();
+        System.out.println(output);
+
+        Assert.assertTrue(output.startsWith("# HELP markup_cache_requests_total"));
+        Assert.assertEquals(output.indexOf("# TYPE markup_cache_requests_total"), output.lastIndexOf("# TYPE markup_cache_requests_total"));
+        Assert.assertTrue(output.contains("markup_cache_requests_total{cache=\"\\\"content\\\"\",result=\"hit\"} 2\n"));
+        Assert.assertTrue(output.contains("markup_request_duration_seconds_count{route=\"search\"} 1\n"));
+        Assert.assertTrue(output.contains("markup_request_duration_seconds_sum{route=\"search\"} 0.0015\n"));
+    }
+}
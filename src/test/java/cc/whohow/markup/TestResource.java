@@ -1,5 +1,9 @@
 package cc.whohow.markup;
 
+import cc.whohow.markup.impl.ClasspathStatic;
+import cc.whohow.markup.impl.StaticContent;
+import io.netty.buffer.ByteBuf;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.net.URL;
@@ -10,4 +14,19 @@ public class TestResource {
         URL index = Markup.class.getResource("/static/index.html");
         System.out.println(index);
     }
+
+    @Test
+    public void testClasspathStatic() {
+        ClasspathStatic classpathStatic = new ClasspathStatic();
+        System.out.println(classpathStatic.keys());
+
+        StaticContent index = classpathStatic.get("index.html");
+        Assert.assertNotNull(index);
+        System.out.println(index.newResponse(true));
+
+        ByteBuf content = index.newContent(false);
+        Assert.assertEquals(index.getMetadata().getSize(), content.readableBytes());
+        content.release();
+        Assert.assertEquals(index.getMetadata().getSize(), index.newContent(false).readableBytes());
+    }
 }
@@ -0,0 +1,330 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.SearchCursor;
+import cc.whohow.markup.impl.SearchResult;
+import cc.whohow.markup.impl.TocTree;
+import com.google.common.base.Throwables;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * 无关键词按创建时间倒序浏览、目录过滤、翻页，索引分多次提交（多个段）、乱序写入
+ */
+public class TestSearch {
+    private static final int DOCS = 500;
+    private static final int PAGE_SIZE = 20;
+
+    private MarkdownGenerator generator;
+    private Markup markup;
+
+    @Before
+    public void setUp() throws Exception {
+        MarkupConfiguration configuration = new MarkupConfiguration();
+        configuration.setGit("file:///tmp/markup-test-search");
+        generator = new MarkdownGenerator(0);
+        generator.setSize(256);
+        markup = newMarkup(configuration);
+    }
+
+    private Markup newMarkup(MarkupConfiguration configuration) throws Exception {
+        Markup markup = new Markup(configuration);
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < DOCS; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, new Random(0));
+        for (int i = 0; i < DOCS; i++) {
+            markup.index(generator.markdown(order.get(i)));
+            if (i % 100 == 99) {
+                markup.commit();
+            }
+        }
+        markup.commit();
+        return markup;
+    }
+
+    @After
+    public void tearDown() {
+        markup.close();
+    }
+
+    @Test
+    public void testBrowse() throws Exception {
+        List<Markdown> list = browse(null);
+        Assert.assertEquals(DOCS, list.size());
+        for (int i = 0; i < DOCS; i++) {
+            Assert.assertEquals(generator.key(DOCS - 1 - i), list.get(i).getKey());
+        }
+    }
+
+    @Test
+    public void testBrowsePrefix() throws Exception {
+        List<Markdown> list = browse("dir3/");
+        Assert.assertEquals(DOCS / generator.getDirectories() + 1, list.size());
+        for (int i = 1; i < list.size(); i++) {
+            Assert.assertTrue(list.get(i).getKey().startsWith("dir3/"));
+            Assert.assertTrue(list.get(i - 1).getCreated().after(list.get(i).getCreated()));
+        }
+    }
+
+    /**
+     * 不以/结尾的前缀仍按KEY前缀匹配：dir1 匹配 dir1/、dir10/ ~ dir15/
+     */
+    @Test
+    public void testBrowseKeyPrefix() throws Exception {
+        List<Markdown> list = browse("dir1");
+        long expected = IntStream.range(0, DOCS)
+                .mapToObj(generator::key)
+                .filter(key -> key.startsWith("dir1"))
+                .count();
+        Assert.assertEquals(expected, list.size());
+        Assert.assertTrue(list.stream().anyMatch(markdown -> markdown.getKey().startsWith("dir12/")));
+        // 目录过滤与前缀匹配结果一致
+        Assert.assertEquals(browse("dir3").size(), browse("dir3/").size());
+        List<Markdown> files = browse("dir1/doc1");
+        Assert.assertFalse(files.isEmpty());
+        Assert.assertTrue(files.stream().allMatch(markdown -> markdown.getKey().startsWith("dir1/doc1")));
+    }
+
+    /**
+     * 创建时间范围 [from, to)
+     */
+    @Test
+    public void testCreatedRange() throws Exception {
+        SearchCursor cursor = new SearchCursor();
+        cursor.setCreatedFrom(generator.markdown(100).getCreated().getTime());
+        cursor.setCreatedTo(generator.markdown(200).getCreated().getTime());
+        List<Markdown> list = search(cursor);
+        Assert.assertEquals(100, list.size());
+        Assert.assertEquals(generator.key(199), list.get(0).getKey());
+        Assert.assertEquals(generator.key(100), list.get(99).getKey());
+
+        cursor = new SearchCursor();
+        cursor.setPrefix("dir3/");
+        cursor.setCreatedTo(generator.markdown(100).getCreated().getTime());
+        Assert.assertEquals(7, search(cursor).size());
+    }
+
+    /**
+     * 修改后按修改时间排序、过滤
+     */
+    @Test
+    public void testModified() throws Exception {
+        Markdown modified = generator.markdown(7, 30);
+        markup.index(modified);
+        markup.commit();
+
+        SearchCursor cursor = new SearchCursor();
+        cursor.setSort(SearchCursor.SORT_MODIFIED);
+        List<Markdown> list = search(cursor);
+        Assert.assertEquals(DOCS, list.size());
+        Assert.assertEquals(modified.getKey(), list.get(0).getKey());
+        Assert.assertEquals(modified.getModified(), list.get(0).getModified());
+        Assert.assertEquals(generator.key(DOCS - 1), list.get(1).getKey());
+
+        cursor = new SearchCursor();
+        cursor.setModifiedFrom(generator.markdown(DOCS).getCreated().getTime());
+        list = search(cursor);
+        Assert.assertEquals(1, list.size());
+        Assert.assertEquals(modified.getKey(), list.get(0).getKey());
+    }
+
+    @Test
+    public void testSortByKey() throws Exception {
+        SearchCursor cursor = new SearchCursor();
+        cursor.setPrefix("dir3/");
+        cursor.setSort(SearchCursor.SORT_KEY);
+        List<Markdown> list = search(cursor);
+        Assert.assertEquals(DOCS / generator.getDirectories() + 1, list.size());
+        for (int i = 1; i < list.size(); i++) {
+            Assert.assertTrue(list.get(i - 1).getKey().compareTo(list.get(i).getKey()) < 0);
+        }
+
+        cursor = new SearchCursor();
+        cursor.setKeyword("缓存");
+        cursor.setSort(SearchCursor.SORT_KEY);
+        list = search(cursor);
+        Assert.assertFalse(list.isEmpty());
+        for (int i = 1; i < list.size(); i++) {
+            Assert.assertTrue(list.get(i - 1).getKey().compareTo(list.get(i).getKey()) < 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSort() throws Exception {
+        SearchCursor cursor = new SearchCursor();
+        cursor.setSort("size");
+        search(cursor);
+    }
+
+    /**
+     * 目录分面统计包含全部命中，不受分页、提前结束影响
+     */
+    @Test
+    public void testFacets() throws Exception {
+        SearchCursor cursor = new SearchCursor();
+        cursor.setCount(PAGE_SIZE);
+        SearchResult<Markdown> result = markup.search(cursor, 1);
+        Assert.assertEquals(PAGE_SIZE, result.getList().size());
+        Map<String, Integer> facets = result.getFacets();
+        System.out.println(facets);
+        Assert.assertEquals(generator.getDirectories(), facets.size());
+        Assert.assertEquals(DOCS, facets.values().stream().mapToInt(Integer::intValue).sum());
+        Assert.assertEquals(Integer.valueOf(DOCS / generator.getDirectories() + 1), facets.get("dir3/"));
+        // dir1/ 与 dir10/ ~ dir15/ 分开统计
+        Assert.assertEquals(Integer.valueOf(DOCS / generator.getDirectories()), facets.get("dir10/"));
+
+        cursor.setKeyword("缓存");
+        Map<String, Integer> keywordFacets = markup.search(cursor, 1).getFacets();
+        Assert.assertEquals(search(cursor).size(), keywordFacets.values().stream().mapToInt(Integer::intValue).sum());
+
+        cursor = new SearchCursor();
+        cursor.setPrefix("dir3/");
+        cursor.setCount(PAGE_SIZE);
+        Assert.assertEquals(Collections.singletonMap("dir3/", DOCS / generator.getDirectories() + 1),
+                markup.search(cursor, 1).getFacets());
+        // 层级不足
+        Assert.assertTrue(markup.search(cursor, 2).getFacets().isEmpty());
+        Assert.assertNull(markup.search(cursor).getFacets());
+    }
+
+    /**
+     * 目录树：直接子节点、子节点数、文件数，删除的文件不再出现
+     */
+    @Test
+    public void testToc() throws Exception {
+        Markdown nested = generator.markdown(DOCS);
+        nested.setKey("dir1/sub/nested.md");
+        markup.index(nested);
+        markup.delete(Collections.singleton(generator.key(0)));
+        markup.commit();
+
+        TocTree toc = markup.getTocTree();
+        Assert.assertEquals(DOCS, toc.keys().size());
+        Assert.assertFalse(markup.list().contains(generator.key(0)));
+
+        List<TocTree.Entry> root = toc.getChildren("");
+        Assert.assertEquals(generator.getDirectories(), root.size());
+        Assert.assertEquals("dir0", root.get(0).getName());
+        Assert.assertEquals("dir0/", root.get(0).getKey());
+        // 删除了 dir0/doc0.md
+        Assert.assertEquals(Integer.valueOf(DOCS / generator.getDirectories()), root.get(0).getFiles());
+        Assert.assertEquals(DOCS, root.stream().mapToInt(TocTree.Entry::getFiles).sum());
+
+        TocTree.Entry dir1 = root.stream().filter(e -> e.getKey().equals("dir1/")).findFirst().get();
+        Assert.assertEquals(Integer.valueOf(DOCS / generator.getDirectories() + 2), dir1.getFiles());
+        Assert.assertEquals(Integer.valueOf(DOCS / generator.getDirectories() + 2), dir1.getChildren());
+        List<TocTree.Entry> children = toc.getChildren("dir1/");
+        TocTree.Entry sub = children.stream().filter(TocTree.Entry::isDirectory).findFirst().get();
+        Assert.assertEquals("sub", sub.getName());
+        Assert.assertEquals(Integer.valueOf(1), sub.getChildren());
+        Assert.assertEquals("nested.md", toc.getChildren("dir1/sub/").get(0).getName());
+        Assert.assertNull(toc.getChildren("dir1/sub/nested.md"));
+        Assert.assertNull(toc.getChildren("dir99/"));
+    }
+
+    /**
+     * 多个切片并行查询，结果、翻页、分面统计与单线程查询一致
+     */
+    @Test
+    public void testParallelSearch() throws Exception {
+        MarkupConfiguration configuration = new MarkupConfiguration();
+        configuration.setGit("file:///tmp/markup-test-search");
+        configuration.setSearchThreads(2);
+        configuration.setSearchSliceDocs(100);
+        Markup serial = markup;
+        try (Markup parallel = newMarkup(configuration)) {
+            Assert.assertEquals(1, serial.getSearchSlices());
+            Assert.assertTrue(parallel.getSearchSlices() > 1);
+
+            List<SearchCursor> cursors = new ArrayList<>();
+            cursors.add(new SearchCursor());
+            SearchCursor cursor = new SearchCursor();
+            cursor.setPrefix("dir3/");
+            cursors.add(cursor);
+            cursor = new SearchCursor();
+            cursor.setKeyword("缓存");
+            cursors.add(cursor);
+            cursor = new SearchCursor();
+            cursor.setKeyword("huancun");
+            cursor.setSort(SearchCursor.SORT_KEY);
+            cursors.add(cursor);
+            cursor = new SearchCursor();
+            cursor.setSort(SearchCursor.SORT_MODIFIED);
+            cursors.add(cursor);
+            for (SearchCursor c : cursors) {
+                markup = serial;
+                List<Markdown> expected = search(new SearchCursor(c.toString()));
+                markup = parallel;
+                List<Markdown> actual = search(new SearchCursor(c.toString()));
+                Assert.assertFalse(expected.isEmpty());
+                Assert.assertEquals(keys(expected), keys(actual));
+
+                c.setCount(PAGE_SIZE);
+                Assert.assertEquals(serial.search(c, 1).getFacets(), parallel.search(c, 1).getFacets());
+            }
+        } finally {
+            markup = serial;
+        }
+    }
+
+    /**
+     * 关闭后查询失败（索引已关闭），而不是等待已关闭的查询线程池
+     */
+    @Test(timeout = 60000)
+    public void testParallelSearchAfterClose() throws Exception {
+        MarkupConfiguration configuration = new MarkupConfiguration();
+        configuration.setGit("file:///tmp/markup-test-search");
+        configuration.setSearchThreads(2);
+        configuration.setSearchSliceDocs(100);
+        Markup parallel = newMarkup(configuration);
+        Assert.assertTrue(parallel.getSearchSlices() > 1);
+        parallel.close();
+        try {
+            parallel.search(new SearchCursor());
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(Throwables.getRootCause(e) instanceof AlreadyClosedException);
+        }
+    }
+
+    private static List<String> keys(List<Markdown> list) {
+        List<String> keys = new ArrayList<>(list.size());
+        for (Markdown markdown : list) {
+            keys.add(markdown.getKey());
+        }
+        return keys;
+    }
+
+    private List<Markdown> browse(String prefix) throws Exception {
+        SearchCursor cursor = new SearchCursor();
+        cursor.setPrefix(prefix);
+        return search(cursor);
+    }
+
+    /**
+     * 按游标翻页直到结束，游标经过序列化
+     */
+    private List<Markdown> search(SearchCursor cursor) throws Exception {
+        List<Markdown> list = new ArrayList<>();
+        cursor.setCount(PAGE_SIZE);
+        while (true) {
+            SearchResult<Markdown> result = markup.search(cursor);
+            list.addAll(result.getList());
+            if (result.getCursor() == null) {
+                return list;
+            }
+            cursor = new SearchCursor(result.getCursor());
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.ws.Server;
+import cc.whohow.markup.ws.ServerTransport;
+import cc.whohow.markup.ws.WebServiceHandler;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import io.netty.util.internal.PlatformDependent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 长时间稳定性测试：持续提交、更新索引，同时按固定速率混合请求，开启Netty PARANOID内存泄漏检测
+ * <p>
+ * 以下情况失败：ByteBuf泄漏、IndexReader未关闭（停止更新后未回落到1个）或持续增长、GC后堆内存持续增长
+ * <pre>
+ * java -Xmx128m -Dsoak.duration=PT4H ... org.junit.runner.JUnitCore cc.whohow.markup.TestSoak
+ * </pre>
+ * 泄漏检测器在类加载时替换，需单独运行（不与其他测试共用JVM）
+ */
+public class TestSoak {
+    private static final int PORT = 18084;
+    private static final int FILES = 1000;
+    private static final int CONNECTIONS = 8;
+    private static final double CHURN = 0.02;
+    /**
+     * 持续时间（ISO-8601），默认3分钟
+     */
+    private static final Duration DURATION = Duration.parse(System.getProperty("soak.duration", "PT3M"));
+    /**
+     * 每秒请求数
+     */
+    private static final int RATE = Integer.getInteger("soak.rate", 50);
+    /**
+     * 提交、更新间隔
+     */
+    private static final long UPDATE_SECONDS = 5;
+    /**
+     * 采样间隔（每轮压测时长）
+     */
+    private static final long SAMPLE_SECONDS = 15;
+    /**
+     * 旧IndexReader延迟1分钟关闭，稳定时打开数上限
+     */
+    private static final int MAX_OPEN_READERS = 2 + (int) (60 / UPDATE_SECONDS) + 1;
+    /**
+     * 堆内存增长容忍：后1/3采样均值不超过前1/3均值的 (1 + HEAP_CREEP) 倍 + HEAP_SLACK
+     */
+    private static final double HEAP_CREEP = 0.2;
+    private static final long HEAP_SLACK = 8 * 1024 * 1024;
+
+    private static final LongAdder LEAKS = new LongAdder();
+
+    static {
+        // 需在ByteBuf相关类初始化前设置
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+        ResourceLeakDetectorFactory.setResourceLeakDetectorFactory(new ResourceLeakDetectorFactory() {
+            @Override
+            @Deprecated
+            public <T> ResourceLeakDetector<T> newResourceLeakDetector(Class<T> resource, int samplingInterval, long maxActive) {
+                return newResourceLeakDetector(resource, samplingInterval);
+            }
+
+            @Override
+            public <T> ResourceLeakDetector<T> newResourceLeakDetector(Class<T> resource, int samplingInterval) {
+                return new ResourceLeakDetector<T>(resource, samplingInterval) {
+                    @Override
+                    protected void reportTracedLeak(String resourceType, String records) {
+                        LEAKS.increment();
+                        super.reportTracedLeak(resourceType, records);
+                    }
+
+                    @Override
+                    protected void reportUntracedLeak(String resourceType) {
+                        LEAKS.increment();
+                        super.reportUntracedLeak(resourceType);
+                    }
+                };
+            }
+        });
+    }
+
+    @Test
+    public void soak() throws Exception {
+        Path root = Files.createTempDirectory("markup-soak");
+        String name = "markup-soak";
+        Path clone = Paths.get(name);
+        MarkdownGenerator markdownGenerator = new MarkdownGenerator(FILES);
+        EventLoopGroup bossGroup = ServerTransport.NIO.newEventLoopGroup(1);
+        EventLoopGroup workerGroup = ServerTransport.NIO.newEventLoopGroup(0);
+        ScheduledExecutorService updater = Executors.newSingleThreadScheduledExecutor();
+        try (GitHistoryGenerator history = new GitHistoryGenerator(root.resolve(name), markdownGenerator, 0)) {
+            history.init(FILES);
+
+            MarkupConfiguration configuration = new MarkupConfiguration();
+            configuration.setGit(history.getUri().toString());
+            try (Markup markup = new Markup(configuration);
+                 LoadGenerator loadGenerator = BenchmarkLoad.newLoadGenerator(PORT, markdownGenerator)) {
+                markup.update();
+                List<Channel> channels = Server.bind(ServerTransport.NIO, bossGroup, workerGroup,
+                        new WebServiceHandler(markup), PORT, 1);
+
+                System.out.printf("soak %s, %d req/s, update every %ds, max heap %dMB%n",
+                        DURATION, RATE, UPDATE_SECONDS, Runtime.getRuntime().maxMemory() / 1024 / 1024);
+                AtomicReference<Throwable> updateError = new AtomicReference<>();
+                LongAdder updates = new LongAdder();
+                updater.scheduleWithFixedDelay(() -> {
+                    try {
+                        history.commit(CHURN);
+                        markup.update();
+                        updates.increment();
+                    } catch (Throwable e) {
+                        e.printStackTrace();
+                        updateError.compareAndSet(null, e);
+                    }
+                }, UPDATE_SECONDS, UPDATE_SECONDS, TimeUnit.SECONDS);
+
+                List<Sample> samples = new ArrayList<>();
+                long requests = 0;
+                long errors = 0;
+                long start = System.nanoTime();
+                long end = start + DURATION.toNanos();
+                System.out.printf("%8s %8s %8s %8s %8s %10s %8s %8s %6s%n",
+                        "time(s)", "requests", "errors", "updates", "readers", "heap(MB)", "direct", "fds", "leaks");
+                while (System.nanoTime() < end) {
+                    LoadGenerator.Result result = loadGenerator.run(RATE, SAMPLE_SECONDS, TimeUnit.SECONDS, CONNECTIONS);
+                    requests += result.getLatency().getTotalCount();
+                    // 404（已删除的文件）也计入，仅供参考
+                    errors += result.getErrors() + result.getUnfinished();
+                    Sample sample = sample(markup);
+                    samples.add(sample);
+                    System.out.printf("%8d %8d %8d %8d %8d %10.1f %8s %8d %6d%n",
+                            TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), requests, errors,
+                            updates.sum(), sample.readers, sample.heap / 1024.0 / 1024.0,
+                            sample.direct < 0 ? "-" : String.valueOf(sample.direct / 1024), sample.fds, sample.leaks);
+                    Assert.assertNull("update failed: " + updateError.get(), updateError.get());
+                    Assert.assertEquals("ByteBuf leaks", 0, sample.leaks);
+                    Assert.assertTrue("open readers " + sample.readers, sample.readers <= MAX_OPEN_READERS);
+                }
+                updater.shutdown();
+                updater.awaitTermination(1, TimeUnit.MINUTES);
+                Assert.assertNull("update failed: " + updateError.get(), updateError.get());
+                Assert.assertTrue("no updates", updates.sum() > 0);
+
+                for (Channel channel : channels) {
+                    channel.close().sync();
+                }
+
+                // 停止更新后，旧IndexReader应在1分钟后全部关闭
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(90);
+                while (markup.getOpenReaders() > 1 && System.nanoTime() < deadline) {
+                    TimeUnit.SECONDS.sleep(1);
+                }
+                System.out.println("open readers after idle: " + markup.getOpenReaders());
+                Assert.assertEquals("open readers after idle", 1, markup.getOpenReaders());
+
+                assertNoHeapCreep(samples);
+            }
+        } finally {
+            updater.shutdownNow();
+            bossGroup.shutdownGracefully();
+            workerGroup.shutdownGracefully();
+            MoreFiles.deleteRecursively(root, RecursiveDeleteOption.ALLOW_INSECURE);
+            if (Files.exists(clone)) {
+                MoreFiles.deleteRecursively(clone, RecursiveDeleteOption.ALLOW_INSECURE);
+            }
+        }
+        // 已回收但未报告的泄漏在下次分配时报告
+        System.gc();
+        for (int i = 0; i < 16; i++) {
+            ByteBufAllocator.DEFAULT.buffer().release();
+        }
+        System.out.println("leaks: " + LEAKS.sum());
+        Assert.assertEquals("ByteBuf leaks", 0, LEAKS.sum());
+    }
+
+    /**
+     * 去掉第一次采样（预热），比较前1/3与后1/3的GC后堆内存均值
+     */
+    private static void assertNoHeapCreep(List<Sample> samples) {
+        if (samples.size() < 4) {
+            System.out.println("too few samples for heap creep check: " + samples.size());
+            return;
+        }
+        List<Sample> steady = samples.subList(1, samples.size());
+        int third = Integer.max(1, steady.size() / 3);
+        double first = steady.subList(0, third).stream().mapToLong(s -> s.heap).average().orElse(0);
+        double last = steady.subList(steady.size() - third, steady.size()).stream().mapToLong(s -> s.heap).average().orElse(0);
+        System.out.printf("heap after gc: first %.1fMB, last %.1fMB%n", first / 1024 / 1024, last / 1024 / 1024);
+        Assert.assertTrue(String.format("heap creep %.1fMB -> %.1fMB", first / 1024 / 1024, last / 1024 / 1024),
+                last <= first * (1 + HEAP_CREEP) + HEAP_SLACK);
+    }
+
+    private static Sample sample(Markup markup) {
+        // 触发泄漏报告：回收后下次分配时检查
+        System.gc();
+        ByteBufAllocator.DEFAULT.buffer().release();
+        Sample sample = new Sample();
+        sample.readers = markup.getOpenReaders();
+        sample.heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        sample.direct = PlatformDependent.usedDirectMemory();
+        sample.fds = getOpenFileDescriptors();
+        sample.leaks = LEAKS.sum();
+        return sample;
+    }
+
+    private static long getOpenFileDescriptors() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            return ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount();
+        }
+        return -1;
+    }
+
+    private static class Sample {
+        int readers;
+        long heap;
+        long direct;
+        long fds;
+        long leaks;
+    }
+}
@@ -0,0 +1,124 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.Suggester;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 输入提示：标题词首中缀、全拼、首字母、文件路径，按修改时间倒序，随提交更新
+ */
+public class TestSuggest {
+    private static final long CREATED = 1546300800000L;
+
+    private Markup markup;
+
+    @Before
+    public void setUp() throws Exception {
+        MarkupConfiguration configuration = new MarkupConfiguration();
+        configuration.setGit("file:///tmp/markup-test-suggest");
+        markup = new Markup(configuration);
+
+        markup.index(markdown("design/cache.md", "# 分布式缓存设计\n\n正文", 3));
+        markup.index(markdown("design/queue.md", "```\n# 代码块中的注释\n```\n\n## Redis 消息队列 ##\n", 2));
+        markup.index(markdown("notes/readme.md", "没有标题", 1));
+        markup.index(markdown("notes/cache-notes.md", "# 缓存笔记", 0));
+        markup.commit();
+        markup.awaitSuggester();
+    }
+
+    @After
+    public void tearDown() {
+        markup.close();
+    }
+
+    @Test
+    public void testTitle() throws Exception {
+        Assert.assertEquals("分布式缓存设计", Markup.getTitle(markdown("a.md", "# 分布式缓存设计\n", 0)));
+        Assert.assertEquals("Redis 消息队列", Markup.getTitle(markdown("a.md", "```\n# x\n```\n## Redis 消息队列 ##", 0)));
+        Assert.assertEquals("readme", Markup.getTitle(markdown("notes/readme.md", "没有标题", 0)));
+        Assert.assertEquals("readme", Markup.getTitle(markdown("notes/readme.md", "#hashtag", 0)));
+    }
+
+    @Test
+    public void testSuggest() throws Exception {
+        Assert.assertEquals(Collections.singletonList("design/cache.md"), suggest("分布"));
+        Assert.assertEquals("分布式缓存设计", markup.suggest("分布", 10).get(0).getTitle());
+        // 全拼、首字母
+        Assert.assertEquals(Collections.singletonList("design/cache.md"), suggest("fenbu"));
+        Assert.assertEquals(Collections.singletonList("design/cache.md"), suggest("fbs"));
+        // 词首中缀，按修改时间倒序
+        Assert.assertEquals(Arrays.asList("design/cache.md", "notes/cache-notes.md"), suggest("缓存"));
+        Assert.assertEquals(Arrays.asList("design/cache.md", "notes/cache-notes.md"), suggest("huanc"));
+        // 不区分大小写，代码块中的标题忽略
+        Assert.assertEquals(Collections.singletonList("design/queue.md"), suggest("redis"));
+        Assert.assertEquals(Collections.singletonList("design/queue.md"), suggest("xiaoxi"));
+        Assert.assertTrue(suggest("代码块").isEmpty());
+        // 文件路径、文件名
+        Assert.assertEquals(Arrays.asList("notes/readme.md", "notes/cache-notes.md"), suggest("notes/"));
+        Assert.assertEquals(Arrays.asList("design/cache.md", "notes/cache-notes.md"), suggest("cache"));
+        Assert.assertEquals("readme", markup.suggest("readme", 10).get(0).getTitle());
+        // 分页大小
+        Assert.assertEquals(1, markup.suggest("缓存", 1).size());
+        Assert.assertTrue(suggest("").isEmpty());
+        Assert.assertTrue(suggest("不存在").isEmpty());
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+        Suggester suggester = markup.getSuggester();
+        markup.index(markdown("notes/cache-notes.md", "# 本地缓存", 5));
+        markup.delete(Collections.singleton("design/cache.md"));
+        markup.commit();
+        // 异步构建，完成前仍使用上次的提示
+        Assert.assertNotSame(suggester, markup.awaitSuggester());
+
+        Assert.assertEquals(Collections.singletonList("notes/cache-notes.md"), suggest("缓存"));
+        Assert.assertEquals(Collections.singletonList("notes/cache-notes.md"), suggest("bendi"));
+        Assert.assertTrue(suggest("笔记").isEmpty());
+        Assert.assertTrue(suggest("fbs").isEmpty());
+        // 修改时间更新后排在前面
+        Assert.assertEquals(Arrays.asList("notes/cache-notes.md", "notes/readme.md"), suggest("notes/"));
+    }
+
+    @Test
+    public void testManyInputs() throws Exception {
+        // 较新的文件由路径、文件名、多个词首后缀及拼音共十几个词条命中，不能挤掉其他文件
+        markup.index(markdown("zz/zz.md", "# zz zz zz zz zz zz zz zz zz", 10));
+        markup.index(markdown("notes/zz-old.md", "# 旧笔记", 9));
+        markup.commit();
+        markup.awaitSuggester();
+
+        Assert.assertEquals(Arrays.asList("zz/zz.md", "notes/zz-old.md"), suggest("zz"));
+        Assert.assertEquals(Arrays.asList("zz/zz.md", "notes/zz-old.md"), markup.suggest("zz", 2).stream()
+                .map(Suggester.Suggestion::getKey)
+                .collect(Collectors.toList()));
+        Assert.assertEquals(Collections.singletonList("zz/zz.md"), markup.suggest("zz", 1).stream()
+                .map(Suggester.Suggestion::getKey)
+                .collect(Collectors.toList()));
+    }
+
+    private List<String> suggest(String text) throws Exception {
+        return markup.suggest(text, 10).stream()
+                .map(Suggester.Suggestion::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private static Markdown markdown(String key, String content, int modifiedDays) {
+        Markdown markdown = new Markdown();
+        markdown.setKey(key);
+        markdown.setContent(content);
+        markdown.setHtml(content);
+        markdown.setCreated(new Date(CREATED));
+        markdown.setModified(new Date(CREATED + TimeUnit.DAYS.toMillis(modifiedDays)));
+        return markdown;
+    }
+}
@@ -0,0 +1,39 @@
+package cc.whohow.markup;
+
+import cc.whohow.markup.impl.UpdateException;
+import cc.whohow.markup.impl.UpdateReport;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestUpdateReport {
+    @Test
+    public void test() {
+        UpdateReport report = new UpdateReport();
+        report.addPhase(UpdateReport.RENDER, 1_500_000);
+        report.addPhase(UpdateReport.RENDER, 500_000);
+        report.addPhase(UpdateReport.COMMIT, 1_234);
+        report.addCount(UpdateReport.FILES_READ, 1);
+        report.addCount(UpdateReport.FILES_READ, 1);
+        report.finish();
+        System.out.println(report);
+
+        Assert.assertEquals(2.0, report.getPhases().get(UpdateReport.RENDER), 0);
+        Assert.assertEquals(0.001, report.getPhases().get(UpdateReport.COMMIT), 0);
+        Assert.assertEquals(2L, (long) report.getCounts().get(UpdateReport.FILES_READ));
+        Assert.assertTrue(report.getDuration() >= 0);
+    }
+
+    @Test
+    public void testFailure() {
+        MarkupConfiguration configuration = new MarkupConfiguration();
+        configuration.setGit("file:///tmp/markup-test-update-missing");
+        try (Markup markup = new Markup(configuration)) {
+            markup.update();
+            Assert.fail();
+        } catch (UpdateException e) {
+            // 异常附带本次失败的报告
+            System.out.println(e.getReport());
+            Assert.assertNotNull(e.getReport().getError());
+        }
+    }
+}